@@ -0,0 +1,85 @@
+package com.etiennek.oidc.benchmarks;
+
+import java.net.URI;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.etiennek.oidc.client.http.HttpTransport;
+import com.etiennek.oidc.client.jose.AccessToken;
+import com.etiennek.oidc.client.jose.AccessTokenValidator;
+import com.etiennek.oidc.client.jose.JwksCache;
+
+/**
+ * Validation of an RS256 access token with the JWKS already cached, with and without the verified-token cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccessTokenValidatorBenchmark {
+    @Param({ "0", "10000" })
+    public int cacheSize;
+
+    private StubTokenEndpoint endpoint;
+    private HttpTransport transport;
+    private AccessTokenValidator validator;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        var keyPair = Fixtures.rsaKeyPair();
+        var jwks = Fixtures.jwks("k1", (RSAPublicKey) keyPair.getPublic());
+
+        var now = Instant.now().getEpochSecond();
+        token = Fixtures.jwt("k1", "at+jwt", Map.of(
+                "iss", "https://op.example.com",
+                "sub", "248289761001",
+                "aud", "https://api.example.com",
+                "client_id", Fixtures.CLIENT_ID,
+                "scope", "read:orders write:orders",
+                "jti", "dbe39bf3a3ba4238a513f51d6e1691c4",
+                "iat", now,
+                "exp", now + 3600), keyPair.getPrivate());
+
+        endpoint = new StubTokenEndpoint().json("/jwks", jwks);
+        transport = HttpTransport.builder().build();
+        validator = AccessTokenValidator.builder()
+                .issuer("https://op.example.com")
+                .audience("https://api.example.com")
+                .keys(JwksCache.builder()
+                        .jwksUri(URI.create(endpoint.baseUrl() + "/jwks"))
+                        .transport(transport)
+                        .build())
+                .cacheSize(cacheSize)
+                .build();
+        validator.validate(token).join();
+    }
+
+    @TearDown
+    public void tearDown() {
+        transport.close();
+        endpoint.close();
+    }
+
+    @Benchmark
+    public AccessToken validate() {
+        return validator.validate(token, "read:orders").join();
+    }
+}
@@ -0,0 +1,100 @@
+package com.etiennek.oidc.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.etiennek.oidc.client.utils.JsonCodec;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Runs the benchmarks at several thread counts with the GC profiler and writes one JMH JSON result per thread count.
+ * <p>
+ * System properties:
+ * <ul>
+ * <li>{@code threads} - comma separated thread counts, default {@code 1,4,16}</li>
+ * <li>{@code include} - benchmark regex, default all benchmarks of this module</li>
+ * <li>{@code results} - directory for the JSON results, default {@code results}</li>
+ * <li>{@code saveBaseline} - also copy the results to {@code baselines/<name>}, e.g. the released version</li>
+ * <li>{@code baseline} - compare the results against {@code baselines/<name>}</li>
+ * </ul>
+ */
+public final class BenchmarkRunner {
+    private static final String ALLOC_RATE_NORM = "·gc.alloc.rate.norm";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var include = System.getProperty("include", "com\\.etiennek\\.oidc\\.benchmarks\\..*");
+        var results = Path.of(System.getProperty("results", "results"));
+        var saveBaseline = System.getProperty("saveBaseline");
+        var baseline = System.getProperty("baseline");
+        Files.createDirectories(results);
+
+        for (var t : System.getProperty("threads", "1,4,16").split(",")) {
+            var threads = Integer.parseInt(t.trim());
+            var result = results.resolve("threads-" + threads + ".json");
+            var options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(result.toString())
+                    .build();
+            new Runner(options).run();
+
+            if (saveBaseline != null) {
+                var dir = Files.createDirectories(Path.of("baselines", saveBaseline));
+                Files.copy(result, dir.resolve(result.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (baseline != null) {
+                compare(Path.of("baselines", baseline, result.getFileName().toString()), result);
+            }
+        }
+    }
+
+    private static void compare(Path baseline, Path current) throws IOException {
+        if (!Files.exists(baseline)) {
+            System.out.printf("%nNo baseline at %s%n", baseline);
+            return;
+        }
+
+        var before = scores(baseline);
+        var after = scores(current);
+        System.out.printf("%n%-70s %14s %14s %9s%n", "Benchmark (" + current.getFileName() + ")", "baseline",
+                "current", "change");
+        for (var entry : after.entrySet()) {
+            var previous = before.get(entry.getKey());
+            if (previous == null) {
+                System.out.printf("%-70s %14s %14.3f %9s%n", entry.getKey(), "-", entry.getValue(), "new");
+            } else {
+                System.out.printf("%-70s %14.3f %14.3f %+8.1f%%%n", entry.getKey(), previous, entry.getValue(),
+                        (entry.getValue() - previous) / previous * 100);
+            }
+        }
+    }
+
+    private static Map<String, Double> scores(Path result) throws IOException {
+        var scores = new TreeMap<String, Double>();
+        for (JsonNode run : JsonCodec.mapper().readTree(result.toFile())) {
+            var params = run.path("params");
+            var name = run.path("benchmark").asText() + (params.isMissingNode() ? "" : " " + params);
+            var primary = run.path("primaryMetric");
+            scores.put(name + " [" + primary.path("scoreUnit").asText() + "]", primary.path("score").asDouble());
+            var alloc = run.path("secondaryMetrics").path(ALLOC_RATE_NORM);
+            if (!alloc.isMissingNode()) {
+                scores.put(name + " [" + alloc.path("scoreUnit").asText() + "]", alloc.path("score").asDouble());
+            }
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,137 @@
+package com.etiennek.oidc.benchmarks;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import com.etiennek.oidc.client.Client;
+import com.etiennek.oidc.client.Issuer;
+import com.etiennek.oidc.client.jose.JwsAlgorithm;
+import com.etiennek.oidc.client.utils.JsonCodec;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import static com.etiennek.oidc.client.utils.UriUtils.*;
+
+/**
+ * Inputs shared by the benchmarks; shaped like real traffic rather than minimal.
+ */
+final class Fixtures {
+    static final String CLIENT_ID = "client_id_128974329";
+    static final String CLIENT_SECRET = "client_SECr37_8972#$@1@/\\128974329";
+    static final URI REDIRECT_URI = URI.create("https://client.example.com/with_path/callback?tenant=acme&q2=val");
+    static final String SCOPE = "openid profile email offline_access";
+    static final String STATE = "few89f4nkjb234#@$%^%&*@!@#$%^&*()\\/+_)(][{}4238943ujkn43";
+
+    static final String QUERY = "client_id=client_id_128974329&redirect_uri="
+            + "https%3A%2F%2Fclient.example.com%2Fwith_path%2Fcallback%3Ftenant%3Dacme%26q2%3Dval"
+            + "&response_type=code&scope=openid+profile+email+offline_access"
+            + "&state=few89f4nkjb234%23%40%24%25%5E%25%26*%40%21%40%23%24%25%5E%26*%28%29%5C%2F%2B_%29%28%5D%5B%7B%7D4238943ujkn43"
+            + "&nonce=n-0S6_WzA2Mj&prompt=login&ui_locales=en-GB+en";
+
+    static final String CALLBACK_QUERY = "code=SplxlOBeZQQYbYS6WxSbIA.cd3f9d15-5fe2-4c5b-94a4-fb07b5bd1a5b"
+            + "&state=few89f4nkjb234%23%40%24%25%5E%25%26*%40%21%40%23%24%25%5E%26*%28%29%5C%2F%2B_%29%28%5D%5B%7B%7D4238943ujkn43"
+            + "&iss=https%3A%2F%2Fop.example.com&session_state=5a2d0e3c.7a6b4f1d&scope=openid+profile+email";
+
+    static final Map<String, List<String>> CALLBACK_PARAMETERS = Map.of(
+            "code", List.of("SplxlOBeZQQYbYS6WxSbIA.cd3f9d15-5fe2-4c5b-94a4-fb07b5bd1a5b"),
+            "state", List.of(STATE));
+
+    static final byte[] TOKENS_JSON = """
+            {
+                "access_token":"eyJhbGciOiJSUzI1NiIsInR5cCI6ImF0K2p3dCJ9.eyJpc3MiOiJodHRwczovL29wLmV4YW1wbGUuY29tIn0.c2ln",
+                "token_type":"Bearer",
+                "scope":"openid profile email offline_access",
+                "expires_in":3600,
+                "refresh_token":"8xLOxBtZp8.5a2d0e3c-7a6b-4f1d-9b0c-2e6b1f0c9d8a"
+            }""".getBytes(StandardCharsets.UTF_8);
+
+    static final byte[] USERINFO_JSON = userinfo(200);
+
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+
+    private Fixtures() {
+    }
+
+    static KeyPair rsaKeyPair() {
+        try {
+            var generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static byte[] jwks(String kid, RSAPublicKey publicKey) throws JsonProcessingException {
+        return JsonCodec.mapper().writeValueAsBytes(Map.of("keys", List.of(Map.of(
+                "kty", "RSA", "kid", kid, "use", "sig",
+                "n", BASE64URL.encodeToString(unsigned(publicKey.getModulus().toByteArray())),
+                "e", BASE64URL.encodeToString(unsigned(publicKey.getPublicExponent().toByteArray()))))));
+    }
+
+    /**
+     * @return an RS256 JWT with the given header {@code kid} and {@code typ}
+     */
+    static String jwt(String kid, String typ, Map<String, Object> claims, PrivateKey key)
+            throws JsonProcessingException {
+        var header = "{\"alg\":\"RS256\",\"kid\":\"" + kid + "\",\"typ\":\"" + typ + "\"}";
+        var signingInput = BASE64URL.encodeToString(header.getBytes(StandardCharsets.UTF_8)) + "."
+                + BASE64URL.encodeToString(JsonCodec.mapper().writeValueAsBytes(claims));
+        var signature = JwsAlgorithm.RS256.sign(key, signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + "." + BASE64URL.encodeToString(signature);
+    }
+
+    private static byte[] unsigned(byte[] bytes) {
+        return bytes.length > 1 && bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+    }
+
+    static Issuer issuer(String baseUrl) {
+        return Issuer.builder()
+                .issuer(baseUrl)
+                .authorizationEndpoint(toUrl(baseUrl + "/authorize?tenant=acme&extra%26_key=extra_value"))
+                .tokenEndpoint(toUrl(baseUrl + "/token"))
+                .userinfoEndpoint(toUrl(baseUrl + "/userinfo"))
+                .build();
+    }
+
+    static Client client(Issuer issuer) {
+        return clientBuilder(issuer).build();
+    }
+
+    static Client.ClientBuilder clientBuilder(Issuer issuer) {
+        return issuer.clientBuilder()
+                .clientId(CLIENT_ID)
+                .clientSecret(CLIENT_SECRET)
+                .redirectUris(List.of(REDIRECT_URI))
+                .scope(SCOPE);
+    }
+
+    private static byte[] userinfo(int groups) {
+        var sb = new StringBuilder("""
+                {
+                    "sub":"248289761001",
+                    "name":"Jane Doe",
+                    "given_name":"Jane",
+                    "family_name":"Doe",
+                    "preferred_username":"j.doe",
+                    "email":"janedoe@example.com",
+                    "email_verified":true,
+                    "picture":"http://example.com/janedoe/me.jpg",
+                    "groups":[""");
+        for (var i = 0; i < groups; i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append("\"cn=group-").append(i).append(",ou=groups,dc=example,dc=com\"");
+        }
+        sb.append("]}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
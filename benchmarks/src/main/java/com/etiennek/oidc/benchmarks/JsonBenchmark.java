@@ -0,0 +1,47 @@
+package com.etiennek.oidc.benchmarks;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.etiennek.oidc.client.Tokens;
+import com.etiennek.oidc.client.UserInfo;
+import com.etiennek.oidc.client.utils.JsonCodec;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+    private static final ObjectReader TOKENS_READER = JsonCodec.readerFor(Tokens.class);
+    private static final ObjectReader USERINFO_READER = JsonCodec.readerFor(JsonCodec.MAP_TYPE);
+
+    @Benchmark
+    public Tokens tokens() throws IOException {
+        return TOKENS_READER.readValue(Fixtures.TOKENS_JSON);
+    }
+
+    @Benchmark
+    public Map<String, Object> userinfo() throws IOException {
+        return USERINFO_READER.readValue(Fixtures.USERINFO_JSON);
+    }
+
+    @Benchmark
+    public String userinfoStandardClaims() {
+        var userinfo = UserInfo.of(Fixtures.USERINFO_JSON);
+        return userinfo.getSub() + userinfo.getEmail();
+    }
+}
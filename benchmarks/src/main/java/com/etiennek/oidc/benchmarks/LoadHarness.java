@@ -0,0 +1,337 @@
+package com.etiennek.oidc.benchmarks;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongFunction;
+
+import com.etiennek.oidc.client.Client;
+import com.etiennek.oidc.client.Tokens;
+import com.etiennek.oidc.client.exceptions.IdpException;
+import com.etiennek.oidc.client.exceptions.IdpUnavailableException;
+import com.etiennek.oidc.client.http.HttpTransport;
+import com.etiennek.oidc.client.http.ResiliencePolicy;
+
+/**
+ * Drives a {@link Client} against a {@link StubIdp} at a fixed arrival rate and reports throughput, latency
+ * percentiles, allocation rate, and socket and thread counts.
+ * <p>
+ * The load is an open model: calls start on schedule whether or not earlier ones have completed, and latency is
+ * measured from the scheduled start, so a stalled client shows up as latency instead of silently lowering the rate.
+ * Arrivals while {@code maxInFlight} calls are outstanding are counted as dropped. For soak runs, a long
+ * {@code duration} prints a line every {@code reportEvery}; at the end the harness checks that the open TCP
+ * connections didn't grow past the steady state reached after warm-up, and that they and the library's threads are
+ * released once the client is closed, exiting with status 1 otherwise. Threads aren't checked during the run: the
+ * {@link HttpClient}'s default executor grows with concurrency and only shrinks after a minute idle.
+ * <p>
+ * System properties:
+ * <ul>
+ * <li>{@code scenario} - {@code login} (authorize, callback, token, ID Token validation and userinfo),
+ * {@code refresh} or {@code userinfo}; default {@code login}</li>
+ * <li>{@code rate} - calls started per second, default {@code 500}</li>
+ * <li>{@code duration} - measured seconds, default {@code 60}</li>
+ * <li>{@code warmup} - seconds run before measuring, default {@code 10}</li>
+ * <li>{@code reportEvery} - seconds between progress lines, default {@code 10}</li>
+ * <li>{@code maxInFlight} - outstanding calls beyond which arrivals are dropped, default {@code 10000}</li>
+ * <li>{@code latency}, {@code jitter} - IdP response delay and its random extra, in milliseconds, default
+ * {@code 20} and {@code 10}</li>
+ * <li>{@code errorRate} - share of IdP responses that are a 503, default {@code 0}</li>
+ * <li>{@code bulkhead} - the transport's concurrent requests per endpoint, default the library's</li>
+ * <li>{@code leakTolerance} - connections above the steady state still accepted, default {@code 8}</li>
+ * </ul>
+ */
+public final class LoadHarness {
+    private static final String[] LIBRARY_THREADS = { "oidc-", "HttpClient-" };
+
+    private final LongFunction<CompletableFuture<?>> scenario;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final AtomicReference<LatencyHistogram> interval = new AtomicReference<>(new LatencyHistogram());
+    private volatile LatencyHistogram total = new LatencyHistogram();
+
+    private LoadHarness(LongFunction<CompletableFuture<?>> scenario, int maxInFlight) {
+        this.scenario = scenario;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public static void main(String[] args) throws Exception {
+        var scenarioName = System.getProperty("scenario", "login");
+        var rate = Double.parseDouble(System.getProperty("rate", "500"));
+        var duration = Duration.ofSeconds(Long.getLong("duration", 60));
+        var warmup = Duration.ofSeconds(Long.getLong("warmup", 10));
+        var reportEvery = Duration.ofSeconds(Long.getLong("reportEvery", 10));
+        var maxInFlight = Integer.getInteger("maxInFlight", 10_000);
+        var latency = Duration.ofMillis(Long.getLong("latency", 20));
+        var jitter = Duration.ofMillis(Long.getLong("jitter", 10));
+        var errorRate = Double.parseDouble(System.getProperty("errorRate", "0"));
+        var bulkhead = Integer.getInteger("bulkhead");
+        var leakTolerance = Integer.getInteger("leakTolerance", 8);
+
+        var before = Resources.sample();
+        var leaks = 0;
+        try (var idp = new StubIdp(latency, jitter, errorRate)) {
+            var transport = HttpTransport.builder();
+            if (bulkhead != null) {
+                transport.resilience(ResiliencePolicy.builder().maxConcurrentRequests(bulkhead).build());
+            }
+            var client = Fixtures.clientBuilder(idp.issuer()).transport(transport.build()).build();
+            var browser = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+            try {
+                var harness = new LoadHarness(scenario(scenarioName, client, browser), maxInFlight);
+                System.out.printf("%s at %.0f/s against %s (latency %d ms, jitter %d ms, error rate %.3f)%n",
+                        scenarioName, rate, idp.baseUrl(), latency.toMillis(), jitter.toMillis(), errorRate);
+
+                harness.run(rate, warmup, null);
+                harness.reset();
+                var steady = Resources.sample();
+                var start = System.nanoTime();
+                harness.run(rate, duration, reportEvery);
+                harness.drain(Duration.ofSeconds(30));
+                var elapsed = Duration.ofNanos(System.nanoTime() - start);
+                var end = Resources.sample();
+
+                harness.report(elapsed, steady, end, idp.requests());
+                leaks += check("connections during the run", steady.connections(), end.connections(), leakTolerance);
+            } finally {
+                client.close();
+                browser.close();
+            }
+        }
+
+        var after = Resources.settle(before, Duration.ofSeconds(10));
+        leaks += check("connections after close", before.connections(), after.connections(), 0);
+        leaks += check("library threads after close", before.libraryThreads(), after.libraryThreads(), 0);
+        if (leaks > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static LongFunction<CompletableFuture<?>> scenario(String name, Client client, HttpClient browser) {
+        return switch (name) {
+            case "login" -> n -> {
+                var state = "state-" + n;
+                var authorization = client.authorizationUrlBuilder().state(state).nonce(StubIdp.NONCE).build();
+                var request = HttpRequest.newBuilder(URI.create(authorization.toString())).GET().build();
+                var checks = Client.Checks.builder().state(state).nonce(StubIdp.NONCE).build();
+                return browser.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                        .thenCompose(response -> {
+                            var location = URI.create(response.headers().firstValue("Location").orElseThrow());
+                            return client.oauthCallback(Fixtures.REDIRECT_URI, location.getRawQuery(), checks);
+                        })
+                        .thenCompose(client::userinfo);
+            };
+            case "refresh" -> n -> client.refresh(Tokens.builder().refreshToken("refresh-" + n).build());
+            // A distinct access token per call, as from distinct users, so the transport doesn't coalesce them
+            case "userinfo" -> n -> client.userinfo(Tokens.builder().accessToken("access-" + n).build());
+            default -> throw new IllegalArgumentException("unknown scenario: " + name);
+        };
+    }
+
+    /**
+     * Starts calls on schedule for {@code duration}, measuring each from when it was due.
+     */
+    private void run(double rate, Duration duration, Duration reportEvery) {
+        final var period = (long) (1_000_000_000 / rate);
+        final var start = System.nanoTime();
+        final var end = start + duration.toNanos();
+        var nextReport = reportEvery == null ? Long.MAX_VALUE : start + reportEvery.toNanos();
+        var lastReport = start;
+        var lastCompleted = 0L;
+
+        for (long n = 0;; n++) {
+            final var due = start + n * period;
+            if (due - end >= 0) {
+                return;
+            }
+            for (long wait; (wait = due - System.nanoTime()) > 0;) {
+                LockSupport.parkNanos(wait);
+            }
+
+            if (due - nextReport >= 0) {
+                var completed = total.count();
+                var histogram = interval.getAndSet(new LatencyHistogram());
+                var resources = Resources.sample();
+                System.out.printf("[%4ds] %8.1f/s  p50 %8s  p99 %8s  max %8s  in flight %5d  connections %4d"
+                        + "  threads %4d  heap %5d MB%n", Duration.ofNanos(due - start).toSeconds(),
+                        (completed - lastCompleted) * 1e9 / (due - lastReport), millis(histogram.percentile(50)),
+                        millis(histogram.percentile(99)), millis(histogram.max()), inFlight.get(),
+                        resources.connections(), resources.threads(), resources.heapUsed() >> 20);
+                lastCompleted = completed;
+                lastReport = due;
+                nextReport += reportEvery.toNanos();
+            }
+
+            if (inFlight.get() >= maxInFlight) {
+                dropped.increment();
+                continue;
+            }
+            inFlight.incrementAndGet();
+            CompletableFuture<?> call;
+            try {
+                call = scenario.apply(n);
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            call.whenComplete((result, error) -> {
+                var latency = System.nanoTime() - due;
+                total.record(latency);
+                interval.get().record(latency);
+                if (error != null) {
+                    errors.computeIfAbsent(describe(error), k -> new LongAdder()).increment();
+                }
+                inFlight.decrementAndGet();
+            });
+        }
+    }
+
+    private void reset() {
+        drain(Duration.ofSeconds(30));
+        total = new LatencyHistogram();
+        interval.set(new LatencyHistogram());
+        dropped.reset();
+        errors.clear();
+    }
+
+    private void drain(Duration timeout) {
+        final var deadline = System.nanoTime() + timeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(Duration.ofMillis(10).toNanos());
+        }
+    }
+
+    private void report(Duration elapsed, Resources steady, Resources end, long idpRequests) {
+        var seconds = elapsed.toNanos() / 1e9;
+        var completed = total.count();
+        var failed = errors.values().stream().mapToLong(LongAdder::sum).sum();
+        System.out.printf("%ncompleted %d in %.1f s: %.1f/s, %d failed, %d dropped, %d still in flight%n", completed,
+                seconds, completed / seconds, failed, dropped.sum(), inFlight.get());
+        System.out.printf("IdP requests %d%n", idpRequests);
+        System.out.printf("latency p50 %s  p90 %s  p99 %s  p99.9 %s  max %s%n", millis(total.percentile(50)),
+                millis(total.percentile(90)), millis(total.percentile(99)), millis(total.percentile(99.9)),
+                millis(total.max()));
+        System.out.printf("allocation %.1f MB/s (platform threads)%n",
+                (end.allocatedBytes() - steady.allocatedBytes()) / seconds / (1 << 20));
+        System.out.printf("connections %d -> %d, threads %d -> %d, library threads %d -> %d%n", steady.connections(),
+                end.connections(), steady.threads(), end.threads(), steady.libraryThreads(), end.libraryThreads());
+        new TreeMap<>(errors).forEach((error, count) -> System.out.printf("  %8d %s%n", count.sum(), error));
+    }
+
+    private static int check(String what, long expected, long actual, int tolerance) {
+        if (expected < 0 || actual <= expected + tolerance) {
+            return 0;
+        }
+        System.out.printf("LEAK? %s grew from %d to %d%n", what, expected, actual);
+        return 1;
+    }
+
+    private static String describe(Throwable error) {
+        var cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof IdpUnavailableException e) {
+            return "IdpUnavailableException " + e.getReason();
+        }
+        if (cause instanceof IdpException e && e.getError() != null) {
+            return "IdpException " + e.getError();
+        }
+        return cause.getClass().getSimpleName();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2fms", nanos / 1e6);
+    }
+
+    /**
+     * @param connections    open TCP connections and listeners of the process, or -1 where {@code /proc} isn't
+     *                       available
+     * @param libraryThreads live threads started by the library and its {@link HttpClient}s
+     * @param allocatedBytes allocated by platform threads since the JVM started
+     */
+    private record Resources(long connections, int threads, long libraryThreads, long heapUsed, long allocatedBytes) {
+        private static Resources sample() {
+            var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            var libraryThreads = Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> isLibraryThread(thread.getName()))
+                    .count();
+            return new Resources(countConnections(), threadBean.getThreadCount(), libraryThreads,
+                    ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(),
+                    threadBean.getTotalThreadAllocatedBytes());
+        }
+
+        /**
+         * Samples until connections and library threads are back to {@code baseline}, or {@code timeout} passed:
+         * closing releases them asynchronously.
+         */
+        private static Resources settle(Resources baseline, Duration timeout) {
+            final var deadline = System.nanoTime() + timeout.toNanos();
+            var sample = sample();
+            while (sample.connections() > baseline.connections()
+                    || sample.libraryThreads() > baseline.libraryThreads()) {
+                if (System.nanoTime() - deadline >= 0) {
+                    return sample;
+                }
+                LockSupport.parkNanos(Duration.ofMillis(100).toNanos());
+                sample = sample();
+            }
+            return sample;
+        }
+
+        private static boolean isLibraryThread(String name) {
+            for (var prefix : LIBRARY_THREADS) {
+                if (name.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Counts the sockets of this process found in the kernel's TCP tables, leaving out the datagram and Unix
+         * sockets the JDK keeps open for itself, as well as connections in TIME_WAIT, which no longer belong to any.
+         */
+        private static long countConnections() {
+            try {
+                var inodes = new HashSet<String>();
+                for (var table : List.of("/proc/self/net/tcp", "/proc/self/net/tcp6")) {
+                    try (var lines = Files.lines(Path.of(table))) {
+                        lines.skip(1).forEach(line -> inodes.add(line.trim().split("\\s+")[9]));
+                    }
+                }
+                try (var fds = Files.list(Path.of("/proc/self/fd"))) {
+                    return fds.map(LoadHarness.Resources::link)
+                            .filter(link -> link.startsWith("socket:["))
+                            .filter(link -> inodes.contains(link.substring(8, link.length() - 1)))
+                            .count();
+                }
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+
+        private static String link(Path fd) {
+            try {
+                return Files.readSymbolicLink(fd).toString();
+            } catch (IOException e) {
+                // Closed while listing
+                return "";
+            }
+        }
+    }
+}
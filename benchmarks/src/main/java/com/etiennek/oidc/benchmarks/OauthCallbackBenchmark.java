@@ -0,0 +1,50 @@
+package com.etiennek.oidc.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.etiennek.oidc.client.Client;
+import com.etiennek.oidc.client.Tokens;
+import com.etiennek.oidc.client.Client.Checks;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class OauthCallbackBenchmark {
+    private static final Checks CHECKS = Checks.builder().state(Fixtures.STATE).build();
+
+    private StubTokenEndpoint tokenEndpoint;
+    private Client client;
+
+    @Setup
+    public void setUp() throws IOException {
+        tokenEndpoint = new StubTokenEndpoint();
+        client = Fixtures.client(Fixtures.issuer(tokenEndpoint.baseUrl()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+        tokenEndpoint.close();
+    }
+
+    @Benchmark
+    public Tokens oauthCallback() {
+        return client.oauthCallback(Fixtures.REDIRECT_URI, Fixtures.CALLBACK_PARAMETERS, CHECKS).join();
+    }
+}
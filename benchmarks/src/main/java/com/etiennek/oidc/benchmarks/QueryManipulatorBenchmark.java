@@ -0,0 +1,47 @@
+package com.etiennek.oidc.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.etiennek.oidc.client.CallbackParameters;
+import com.etiennek.oidc.client.utils.QueryManipulator;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryManipulatorBenchmark {
+    private QueryManipulator parsed;
+
+    @Setup
+    public void setUp() {
+        parsed = new QueryManipulator(Fixtures.QUERY);
+    }
+
+    @Benchmark
+    public QueryManipulator parse() {
+        return new QueryManipulator(Fixtures.QUERY);
+    }
+
+    @Benchmark
+    public CallbackParameters parseCallback() {
+        return CallbackParameters.parse(Fixtures.CALLBACK_QUERY);
+    }
+
+    @Benchmark
+    public String toQueryString() {
+        return parsed.toQueryString();
+    }
+}
@@ -0,0 +1,155 @@
+package com.etiennek.oidc.benchmarks;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.etiennek.oidc.client.Issuer;
+import com.etiennek.oidc.client.utils.QueryManipulator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import static com.etiennek.oidc.client.utils.UriUtils.*;
+
+/**
+ * An in-process IdP for load runs, with authorization, token, userinfo and JWKS endpoints.
+ * <p>
+ * Every response but the authorization redirect is delayed by {@code latency} plus a uniformly random share of
+ * {@code jitter}, and fails with a 503 at {@code errorRate}. Handlers run on virtual threads, so delays don't limit how
+ * many requests are served at once. The token endpoint hands out one ID Token signed at startup, carrying
+ * {@link #NONCE}, so that signing doesn't compete with the client for CPU.
+ */
+final class StubIdp implements AutoCloseable {
+    static final String NONCE = "load-harness-nonce";
+    private static final byte[] UNAVAILABLE = "{\"error\":\"temporarily_unavailable\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    static {
+        // Without TCP_NODELAY, a response written as headers then body waits out the client's delayed ACK, ~40 ms
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final long latencyNanos;
+    private final long jitterNanos;
+    private final double errorRate;
+    private final AtomicLong codes = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final byte[] tokens;
+
+    StubIdp(Duration latency, Duration jitter, double errorRate) throws IOException {
+        this.latencyNanos = latency.toNanos();
+        this.jitterNanos = jitter.toNanos();
+        this.errorRate = errorRate;
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4096);
+        server.setExecutor(executor);
+
+        var keyPair = Fixtures.rsaKeyPair();
+        var now = Instant.now().getEpochSecond();
+        var idToken = Fixtures.jwt("k1", "JWT", Map.of(
+                "iss", baseUrl(),
+                "sub", "248289761001",
+                "aud", Fixtures.CLIENT_ID,
+                "nonce", NONCE,
+                "iat", now,
+                "exp", now + Duration.ofDays(1).toSeconds()), keyPair.getPrivate());
+        tokens = new String(Fixtures.TOKENS_JSON, StandardCharsets.UTF_8)
+                .replaceFirst("\\{", "{\"id_token\":\"" + idToken + "\",")
+                .getBytes(StandardCharsets.UTF_8);
+
+        server.createContext("/authorize", this::authorize);
+        server.createContext("/token", delayed(exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 200, tokens);
+        }));
+        server.createContext("/userinfo", delayed(exchange -> respond(exchange, 200, Fixtures.USERINFO_JSON)));
+        var jwks = Fixtures.jwks("k1", (RSAPublicKey) keyPair.getPublic());
+        server.createContext("/jwks", delayed(exchange -> respond(exchange, 200, jwks)));
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    Issuer issuer() {
+        return Issuer.builder()
+                .issuer(baseUrl())
+                .authorizationEndpoint(toUrl(baseUrl() + "/authorize"))
+                .tokenEndpoint(toUrl(baseUrl() + "/token"))
+                .userinfoEndpoint(toUrl(baseUrl() + "/userinfo"))
+                .jwksUri(toUrl(baseUrl() + "/jwks"))
+                .build();
+    }
+
+    long requests() {
+        return requests.get();
+    }
+
+    /**
+     * Approves straight away, redirecting back with a fresh code, the state and the issuer (RFC 9207).
+     */
+    private void authorize(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        var query = new QueryManipulator(exchange.getRequestURI().getRawQuery());
+        var redirectUri = URI.create(query.getFirst("redirect_uri"));
+        var callback = new QueryManipulator(redirectUri.getRawQuery());
+        callback.put("code", "code-" + codes.incrementAndGet());
+        callback.put("state", query.getFirst("state"));
+        callback.put("iss", baseUrl());
+        exchange.getResponseHeaders().set("Location", redirectUri.getScheme() + "://" + redirectUri.getRawAuthority()
+                + redirectUri.getRawPath() + "?" + callback.toQueryString());
+        exchange.sendResponseHeaders(302, -1);
+        exchange.close();
+    }
+
+    private HttpHandler delayed(HttpHandler handler) {
+        return exchange -> {
+            requests.incrementAndGet();
+            var random = ThreadLocalRandom.current();
+            var delay = latencyNanos + (jitterNanos > 0 ? random.nextLong(jitterNanos) : 0);
+            try {
+                if (delay > 0) {
+                    Thread.sleep(Duration.ofNanos(delay));
+                }
+                if (errorRate > 0 && random.nextDouble() < errorRate) {
+                    respond(exchange, 503, UNAVAILABLE);
+                } else {
+                    handler.handle(exchange);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.close();
+            }
+        };
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] json) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, json.length);
+        try (var body = exchange.getResponseBody()) {
+            body.write(json);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
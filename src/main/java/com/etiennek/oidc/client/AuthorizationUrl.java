@@ -2,7 +2,6 @@ package com.etiennek.oidc.client;
 
 import java.net.URI;
 import java.net.URL;
-import com.etiennek.oidc.client.utils.QueryManipulator;
 
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -13,12 +12,28 @@ import lombok.Getter;
 @Builder
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class AuthorizationUrl {
+    /** The parameters that vary per request, sorted */
+    static final String[] PER_REQUEST_PARAMETERS = { "code_challenge", "code_challenge_method", "nonce", "state" };
+
     private Client client;
     private String scope;
     private URI redirectUri;
     private String state;
+    private String nonce;
+    private String codeChallenge;
+    private String codeChallengeMethod;
 
     public static class AuthorizationUrlBuilder {
+        /**
+         * Binds the request to {@code transaction}: sets its state, nonce and S256 PKCE code challenge.
+         */
+        public AuthorizationUrlBuilder transaction(Transaction transaction) {
+            return state(transaction.state())
+                    .nonce(transaction.nonce())
+                    .codeChallenge(transaction.codeChallenge())
+                    .codeChallengeMethod(Transaction.CODE_CHALLENGE_METHOD);
+        }
+
         private String getRedirectUriString() {
             if (redirectUri != null)
                 return redirectUri.toString();
@@ -31,12 +46,8 @@ public class AuthorizationUrl {
         }
 
         public URL build() {
-            final var qm = new QueryManipulator(this.client.getIssuer().getAuthorizationEndpoint());
-            qm.put("client_id", client.getClientId());
-            qm.put("scope", scope == null ? client.getScope() : scope);
-            qm.put("redirect_uri", getRedirectUriString());
-            qm.put("state", state);
-            return qm.newUrlWithReplacedQueryString(this.client.getIssuer().getAuthorizationEndpoint());
+            return client.authorizationUrlTemplate(scope == null ? client.getScope() : scope, getRedirectUriString())
+                    .expand(codeChallenge, codeChallengeMethod, nonce, state);
         }
     }
 }
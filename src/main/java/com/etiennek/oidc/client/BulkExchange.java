@@ -0,0 +1,175 @@
+package com.etiennek.oidc.client;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.etiennek.oidc.client.utils.CancellationScope;
+
+/**
+ * Exchanges a sequence of grants with at most {@code concurrency} requests in flight, publishing a
+ * {@link GrantResult} per grant in completion order.
+ * <p>
+ * Grants are only pulled from the source while the subscriber has outstanding demand, so a slow subscriber slows the
+ * exchange down instead of results piling up. The source can be consumed once, so only one subscriber is allowed.
+ * Cancelling the subscription aborts the requests in flight.
+ */
+class BulkExchange implements Flow.Publisher<GrantResult> {
+    private final Client client;
+    private final Iterable<? extends Grant> grants;
+    private final int concurrency;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    BulkExchange(Client client, Iterable<? extends Grant> grants, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        this.client = client;
+        this.grants = grants;
+        this.concurrency = concurrency;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super GrantResult> subscriber) {
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("a bulk exchange can only be subscribed to once"));
+            return;
+        }
+        var subscription = new Subscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        subscription.drain();
+    }
+
+    private final class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super GrantResult> subscriber;
+        private final ConcurrentLinkedQueue<GrantResult> completed = new ConcurrentLinkedQueue<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        // Serializes drain(): only the thread that moves it from 0 runs the loop, others just flag more work
+        private final AtomicInteger wip = new AtomicInteger();
+        private final CancellationScope cancellation = new CancellationScope();
+
+        private volatile boolean cancelled;
+        /** A protocol violation by the subscriber, signalled from {@link #drain()} like every other signal */
+        private volatile Throwable violation;
+        private Iterator<? extends Grant> source;
+        private boolean exhausted;
+        private boolean done;
+
+        private Subscription(Flow.Subscriber<? super GrantResult> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                if (violation == null) {
+                    violation = new IllegalArgumentException("non-positive request: " + n);
+                }
+                cancellation.cancel();
+                drain();
+                return;
+            }
+            requested.getAndUpdate(r -> r + n < 0 ? Long.MAX_VALUE : r + n);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            cancellation.cancel();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            var missed = 1;
+            do {
+                if (done || cancelled) {
+                    completed.clear();
+                    return;
+                }
+                var failure = violation;
+                if (failure != null) {
+                    done = true;
+                    completed.clear();
+                    subscriber.onError(failure);
+                    return;
+                }
+
+                GrantResult result;
+                while (requested.get() > 0 && (result = completed.poll()) != null) {
+                    requested.decrementAndGet();
+                    subscriber.onNext(result);
+                    if (cancelled) {
+                        return;
+                    }
+                }
+
+                try {
+                    launch();
+                } catch (RuntimeException e) {
+                    done = true;
+                    subscriber.onError(e);
+                    return;
+                }
+
+                if (exhausted && inFlight.get() == 0 && completed.isEmpty()) {
+                    done = true;
+                    subscriber.onComplete();
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void launch() {
+            if (source == null) {
+                source = grants.iterator();
+            }
+            while (!exhausted && inFlight.get() < concurrency) {
+                // Checked before demand, so the subscriber is completed without having to request past the end
+                if (!source.hasNext()) {
+                    exhausted = true;
+                    return;
+                }
+                if (inFlight.get() + completed.size() >= requested.get()) {
+                    return;
+                }
+
+                final var grant = source.next();
+                inFlight.incrementAndGet();
+                CompletableFuture<Tokens> exchange;
+                try {
+                    exchange = client.exchange(grant, Client.Mode.cancellable(cancellation));
+                } catch (RuntimeException e) {
+                    exchange = CompletableFuture.failedFuture(e);
+                }
+                exchange.whenComplete((tokens, error) -> {
+                    if (error instanceof CompletionException && error.getCause() != null) {
+                        error = error.getCause();
+                    }
+                    completed.offer(new GrantResult(grant, error == null ? tokens : null, error));
+                    inFlight.decrementAndGet();
+                    drain();
+                });
+            }
+        }
+    }
+}
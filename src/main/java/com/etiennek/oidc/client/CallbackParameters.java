@@ -0,0 +1,196 @@
+package com.etiennek.oidc.client;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+
+import lombok.Getter;
+
+/**
+ * The authorization response parameters of a redirect to the client, read straight from the raw query string.
+ * <p>
+ * The query is scanned once. Only {@code code}, {@code state}, {@code iss} and the error parameters are decoded;
+ * everything else is skipped without being decoded or stored. Any of those parameters appearing more than once is
+ * rejected, as RFC 6749 section 3.1 requires.
+ */
+@Getter
+public final class CallbackParameters {
+    private static final String[] NAMES = { "code", "state", "iss", "error", "error_description", "error_uri" };
+    private static final int CODE = 0, STATE = 1, ISS = 2, ERROR = 3, ERROR_DESCRIPTION = 4, ERROR_URI = 5;
+
+    private final String code;
+    private final String state;
+    private final String iss;
+    private final String error;
+    private final String errorDescription;
+    private final String errorUri;
+
+    private CallbackParameters(String[] values) {
+        this.code = values[CODE];
+        this.state = values[STATE];
+        this.iss = values[ISS];
+        this.error = values[ERROR];
+        this.errorDescription = values[ERROR_DESCRIPTION];
+        this.errorUri = values[ERROR_URI];
+    }
+
+    /**
+     * @param query the query string, with or without the leading {@code '?'}
+     */
+    public static CallbackParameters parse(CharSequence query) {
+        return parse(query, false);
+    }
+
+    /**
+     * @param query the query string as UTF-8 bytes, from its position to its limit; the position isn't changed
+     */
+    public static CallbackParameters parse(ByteBuffer query) {
+        return parse(new Bytes(query), true);
+    }
+
+    private static CallbackParameters parse(CharSequence query, boolean bytes) {
+        final var values = new String[NAMES.length];
+        final var length = query.length();
+        var start = length > 0 && query.charAt(0) == '?' ? 1 : 0;
+        while (start < length) {
+            var end = start;
+            var eq = -1;
+            var encodedKey = false;
+            for (char c; end < length && (c = query.charAt(end)) != '&'; end++) {
+                if (c == '=' && eq < 0) {
+                    eq = end;
+                } else if (eq < 0 && (c == '%' || c == '+')) {
+                    encodedKey = true;
+                }
+            }
+
+            final var keyEnd = eq < 0 ? end : eq;
+            final var index = encodedKey
+                    ? indexOf(decode(query, start, keyEnd, bytes))
+                    : indexOf(query, start, keyEnd);
+            if (index >= 0) {
+                if (values[index] != null) {
+                    throw new RelyingPartyException(
+                            String.format("duplicate parameter [%s] in authorization response", NAMES[index]));
+                }
+                values[index] = eq < 0 ? "" : decode(query, eq + 1, end, bytes);
+            }
+            start = end + 1;
+        }
+        return new CallbackParameters(values);
+    }
+
+    private static int indexOf(CharSequence query, int from, int to) {
+        outer: for (var i = 0; i < NAMES.length; i++) {
+            final var name = NAMES[i];
+            if (name.length() != to - from) {
+                continue;
+            }
+            for (var j = 0; j < name.length(); j++) {
+                if (name.charAt(j) != query.charAt(from + j)) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int indexOf(String key) {
+        return indexOf(key, 0, key.length());
+    }
+
+    /**
+     * Form-decodes part of the query. With {@code bytes}, chars are the raw bytes of UTF-8 input; otherwise they're
+     * text and non-ASCII ones are kept as is.
+     */
+    private static String decode(CharSequence s, int from, int to, boolean bytes) {
+        var plain = true;
+        for (var i = from; i < to && plain; i++) {
+            final var c = s.charAt(i);
+            plain = c != '%' && c != '+' && c < 128;
+        }
+        if (plain) {
+            return s.subSequence(from, to).toString();
+        }
+
+        final var out = new byte[(to - from) * 3];
+        var n = 0;
+        for (var i = from; i < to; i++) {
+            final var c = s.charAt(i);
+            if (c == '+') {
+                out[n++] = ' ';
+            } else if (c == '%') {
+                if (i + 2 >= to) {
+                    throw new RelyingPartyException("incomplete escape in authorization response");
+                }
+                out[n++] = (byte) (hex(s.charAt(i + 1)) << 4 | hex(s.charAt(i + 2)));
+                i += 2;
+            } else if (c < 128 || bytes) {
+                out[n++] = (byte) c;
+            } else {
+                final var end = Character.isHighSurrogate(c) && i + 1 < to ? i + 2 : i + 1;
+                for (var b : s.subSequence(i, end).toString().getBytes(StandardCharsets.UTF_8)) {
+                    out[n++] = b;
+                }
+                i = end - 1;
+            }
+        }
+        return new String(out, 0, n, StandardCharsets.UTF_8);
+    }
+
+    private static int hex(char c) {
+        if (c >= '0' && c <= '9')
+            return c - '0';
+        if (c >= 'A' && c <= 'F')
+            return c - 'A' + 10;
+        if (c >= 'a' && c <= 'f')
+            return c - 'a' + 10;
+        throw new RelyingPartyException("illegal escape in authorization response");
+    }
+
+    /**
+     * @return the parameters that were present, e.g. for error reporting
+     */
+    public Map<String, List<String>> toMap() {
+        final var map = new LinkedHashMap<String, List<String>>();
+        final String[] values = { code, state, iss, error, errorDescription, errorUri };
+        for (var i = 0; i < NAMES.length; i++) {
+            if (values[i] != null) {
+                map.put(NAMES[i], List.of(values[i]));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * The bytes of a buffer as Latin-1 chars, so the scan doesn't need a decoded copy.
+     */
+    private record Bytes(ByteBuffer buffer) implements CharSequence {
+        @Override
+        public int length() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(buffer.position() + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            var bytes = new byte[end - start];
+            buffer.get(buffer.position() + start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
@@ -1,55 +1,214 @@
 package com.etiennek.oidc.client;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import com.etiennek.oidc.client.exceptions.IdpException;
 import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.etiennek.oidc.client.http.HttpTransport;
+import com.etiennek.oidc.client.http.WarmUp;
+import com.etiennek.oidc.client.jose.IdTokenValidator;
+import com.etiennek.oidc.client.jose.JwksCache;
+import com.etiennek.oidc.client.metrics.Endpoint;
+import com.etiennek.oidc.client.metrics.Instrumentation;
+import com.etiennek.oidc.client.utils.CancellationScope;
 import com.etiennek.oidc.client.utils.QueryManipulator;
+import com.etiennek.oidc.client.utils.QueryTemplate;
 import com.etiennek.oidc.client.utils.Constants.ContentTypes;
 import com.etiennek.oidc.client.utils.Constants.HttpHeaders;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.etiennek.oidc.client.utils.JsonCodec;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 
 import static com.etiennek.oidc.client.utils.UriUtils.*;
 
 @Getter
-@Builder
-@AllArgsConstructor(access = AccessLevel.PRIVATE)
-public class Client {
+public class Client implements AutoCloseable {
+    private static final ObjectReader TOKENS_READER = JsonCodec.readerFor(Tokens.class);
+    private static final ObjectReader INTROSPECTION_READER = JsonCodec.readerFor(TokenIntrospection.class);
+    private static final int MAX_AUTHORIZATION_URL_TEMPLATES = 64;
+
     private Issuer issuer;
 
     private String clientId;
     private String clientSecret;
-    @Builder.Default
-    private String scope = "openid";
+    /**
+     * Defaults to {@code client_secret_post} with {@code clientSecret}
+     */
+    private ClientAuthentication clientAuthentication;
+    private String scope;
+
+    private List<URI> redirectUris;
+
+    private HttpTransport transport;
+    /** Whether the transport was created for this client rather than handed to it, and is closed with it */
+    @Getter(AccessLevel.NONE)
+    private boolean ownsTransport;
+
+    /**
+     * Keys ID Tokens are validated with; defaults to the issuer's {@code jwks_uri}. When neither these keys nor the
+     * issuer's {@code jwks_uri}, or the issuer identifier, is known, as with a hand-built {@link Issuer}, ID Tokens
+     * are passed on unvalidated and a {@link Checks#getNonce() nonce} check fails.
+     */
+    private JwksCache jwksCache;
+    private UserinfoCache userinfoCache;
+    private IntrospectionCache introspectionCache;
+    private Clock clock;
+    private Duration clockTolerance;
+
+    private Instrumentation instrumentation;
 
-    @Builder.Default
-    private List<URI> redirectUris = new ArrayList<>();
+    /**
+     * Starts {@link #warmUp()} as soon as the client is built
+     */
+    private boolean warmUp;
 
-    @Builder.Default
-    private Supplier<HttpClient> httpClientFactory = HttpClient::newHttpClient;
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<IdTokenValidator> idTokenValidator = new AtomicReference<>();
+    @Getter(AccessLevel.NONE)
+    private final ConcurrentHashMap<List<String>, QueryTemplate> authorizationUrlTemplates = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<CompletableFuture<List<WarmUp>>> warmUps = new AtomicReference<>();
+
+    /**
+     * @param scope           defaults to {@code openid}
+     * @param transport       defaults to one the client creates and closes with itself; one handed in may be shared
+     *                        and is left open
+     * @param clock           defaults to the UTC system clock
+     * @param instrumentation defaults to {@link Instrumentation#NOOP}
+     */
+    @Builder(buildMethodName = "buildWithoutWarmUp")
+    private Client(Issuer issuer, String clientId, String clientSecret, ClientAuthentication clientAuthentication,
+            String scope, List<URI> redirectUris, HttpTransport transport, JwksCache jwksCache,
+            UserinfoCache userinfoCache, IntrospectionCache introspectionCache, Clock clock, Duration clockTolerance,
+            Instrumentation instrumentation, boolean warmUp) {
+        this.issuer = issuer;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.clientAuthentication = clientAuthentication;
+        this.scope = scope == null ? "openid" : scope;
+        this.redirectUris = redirectUris == null ? new ArrayList<>() : redirectUris;
+        this.ownsTransport = transport == null;
+        this.transport = transport == null ? HttpTransport.builder().build() : transport;
+        this.jwksCache = jwksCache;
+        this.userinfoCache = userinfoCache;
+        this.introspectionCache = introspectionCache;
+        this.clock = clock == null ? Clock.systemUTC() : clock;
+        this.clockTolerance = clockTolerance == null ? Duration.ZERO : clockTolerance;
+        this.instrumentation = instrumentation == null ? Instrumentation.NOOP : instrumentation;
+        this.warmUp = warmUp;
+    }
+
+    public static class ClientBuilder {
+        public Client build() {
+            var client = buildWithoutWarmUp();
+            if (client.warmUp) {
+                client.warmUp();
+            }
+            return client;
+        }
+    }
 
     public AuthorizationUrl.AuthorizationUrlBuilder authorizationUrlBuilder() {
         return AuthorizationUrl.builder().client(this);
     }
 
+    /**
+     * @return the authorization URL with everything but the per-request parameters encoded, cached per scope and
+     *         redirect URI
+     */
+    QueryTemplate authorizationUrlTemplate(String scope, String redirectUri) {
+        final var key = Arrays.asList(scope, redirectUri);
+        var template = authorizationUrlTemplates.get(key);
+        if (template != null) {
+            return template;
+        }
+
+        final var endpoint = issuer.getAuthorizationEndpoint();
+        final var qm = new QueryManipulator(endpoint);
+        qm.put("client_id", clientId);
+        qm.put("scope", scope);
+        qm.put("redirect_uri", redirectUri);
+        template = qm.compile(endpoint, AuthorizationUrl.PER_REQUEST_PARAMETERS);
+        // Scopes and redirect URIs normally come from a small fixed set; don't let arbitrary ones grow the cache
+        if (authorizationUrlTemplates.size() < MAX_AUTHORIZATION_URL_TEMPLATES) {
+            authorizationUrlTemplates.putIfAbsent(key, template);
+        }
+        return template;
+    }
+
     public CompletableFuture<Tokens> oauthCallback(URI redirectUri, Map<String, List<String>> parameters,
             Checks checks) {
+        return oauthCallback(redirectUri, parameters, checks, Mode.ASYNC);
+    }
+
+    /**
+     * @param parseExecutor executor the token response is parsed on
+     */
+    public CompletableFuture<Tokens> oauthCallback(URI redirectUri, Map<String, List<String>> parameters,
+            Checks checks, Executor parseExecutor) {
+        return oauthCallback(redirectUri, parameters, checks, Mode.async(parseExecutor));
+    }
+
+    CompletableFuture<Tokens> oauthCallback(URI redirectUri, Map<String, List<String>> parameters, Checks checks,
+            Mode mode) {
+        return oauthCallback(redirectUri, firstVal(parameters, "state"), firstVal(parameters, "iss"),
+                firstVal(parameters, "error"), firstVal(parameters, "code"), () -> parameters, checks, mode);
+    }
+
+    /**
+     * Completes an authorization code flow from the raw query string of the redirect, e.g.
+     * {@code request.getQueryString()}, without building a parameter map first.
+     */
+    public CompletableFuture<Tokens> oauthCallback(URI redirectUri, CharSequence query, Checks checks) {
+        return oauthCallback(redirectUri, CallbackParameters.parse(query), checks, Mode.ASYNC);
+    }
+
+    /**
+     * @param query the raw query string of the redirect as UTF-8 bytes
+     */
+    public CompletableFuture<Tokens> oauthCallback(URI redirectUri, ByteBuffer query, Checks checks) {
+        return oauthCallback(redirectUri, CallbackParameters.parse(query), checks, Mode.ASYNC);
+    }
+
+    CompletableFuture<Tokens> oauthCallback(URI redirectUri, CallbackParameters parameters, Checks checks,
+            Mode mode) {
+        return oauthCallback(redirectUri, parameters.getState(), parameters.getIss(), parameters.getError(),
+                parameters.getCode(), parameters::toMap, checks, mode);
+    }
+
+    /**
+     * The checks of a callback, however its parameters were parsed.
+     *
+     * @param parameters all parameters of the callback, for error reports
+     */
+    private CompletableFuture<Tokens> oauthCallback(URI redirectUri, String state, String iss, String error,
+            String code, Supplier<Map<String, List<String>>> parameters, Checks checks, Mode mode) {
         if (checks == null)
             checks = Checks.builder().build();
 
@@ -57,63 +216,236 @@ public class Client {
             throw new NullPointerException("issuer.tokenEndpoint");
         }
 
-        if (parameters.containsKey("state") && checks.getState() == null) {
+        if (state != null && checks.getState() == null) {
             throw new NullPointerException("check.state");
         }
 
-        if (!parameters.containsKey("state") && checks.getState() != null) {
+        if (state == null && checks.getState() != null) {
             throw new RelyingPartyException("`response.state` is missing");
         }
 
-        if (!checks.getState().equals(firstVal(parameters, "state"))) {
+        if (!Objects.equals(checks.getState(), state)) {
             throw new RelyingPartyException(String.format("state not equal; expected: [%s] actual: [%s]",
-                    checks.getState(), firstVal(parameters, "state")));
+                    checks.getState(), state));
+        }
+
+        // RFC 9207: a response carrying another issuer's iss was sent to us by mistake or by an attacker
+        if (iss != null && issuer.getIssuer() != null && !issuer.getIssuer().equals(iss)) {
+            throw new RelyingPartyException(String.format("iss mismatch; expected: [%s] actual: [%s]",
+                    issuer.getIssuer(), iss));
         }
 
-        if (parameters.containsKey("error")) {
-            throw new IdpException("error from IDP", parameters);
+        if (error != null) {
+            throw new IdpException("error from IDP", error, parameters.get());
         }
 
-        if (!parameters.containsKey("code")) {
-            throw new IdpException("code missing from IDP", parameters);
+        if (code == null) {
+            throw new IdpException("code missing from IDP", parameters.get());
         }
 
+        return exchangeCode(code, redirectUri, checks.getNonce(), checks.getCodeVerifier(), parameters.get(), mode);
+    }
+
+    public CompletableFuture<Tokens> exchange(Grant grant) {
+        return exchange(grant, Mode.ASYNC);
+    }
+
+    /**
+     * @param parseExecutor executor the token response is parsed on
+     */
+    public CompletableFuture<Tokens> exchange(Grant grant, Executor parseExecutor) {
+        return exchange(grant, Mode.async(parseExecutor));
+    }
+
+    CompletableFuture<Tokens> exchange(Grant grant, Mode mode) {
+        return switch (grant) {
+            case Grant.AuthorizationCode code -> {
+                if (issuer.getTokenEndpoint() == null) {
+                    throw new NullPointerException("issuer.tokenEndpoint");
+                }
+                yield exchangeCode(code.code(), code.redirectUri(), code.nonce(), code.codeVerifier(), Map.of(), mode);
+            }
+            case Grant.RefreshToken refresh -> refresh(refresh.tokens(), mode);
+        };
+    }
+
+    /**
+     * Exchanges {@code grants} with at most {@code concurrency} requests in flight over the client's transport, e.g.
+     * for back-channel jobs. Each grant yields a {@link GrantResult}, published in completion order as the subscriber
+     * requests them. Keep {@code concurrency} within the transport's
+     * {@link com.etiennek.oidc.client.http.ResiliencePolicy#getMaxConcurrentRequests() bulkhead}.
+     */
+    public Flow.Publisher<GrantResult> exchangeAll(Iterable<? extends Grant> grants, int concurrency) {
+        return new BulkExchange(this, grants, concurrency);
+    }
+
+    public Flow.Publisher<GrantResult> exchangeAll(Stream<? extends Grant> grants, int concurrency) {
+        Iterable<Grant> iterable = grants.map(Grant.class::cast)::iterator;
+        return new BulkExchange(this, iterable, concurrency);
+    }
+
+    private CompletableFuture<Tokens> exchangeCode(String code, URI redirectUri, String nonce, String codeVerifier,
+            Map<String, List<String>> parameters, Mode mode) {
         var bodyParams = new QueryManipulator();
-        bodyParams.put("client_id", clientId);
-        bodyParams.put("client_secret", clientSecret);
-        bodyParams.put("code", firstVal(parameters, "code"));
+        bodyParams.put("code", code);
         bodyParams.put("redirect_uri", redirectUri.toString());
+        bodyParams.put("code_verifier", codeVerifier);
+
+        return grant(bodyParams, parameters, mode)
+                .thenCompose(tokens -> validateIdToken(tokens, nonce, true));
+    }
+
+    public CompletableFuture<Tokens> refresh(Tokens tokens) {
+        return refresh(tokens, Mode.ASYNC);
+    }
+
+    /**
+     * @param parseExecutor executor the token response is parsed on
+     */
+    public CompletableFuture<Tokens> refresh(Tokens tokens, Executor parseExecutor) {
+        return refresh(tokens, Mode.async(parseExecutor));
+    }
+
+    CompletableFuture<Tokens> refresh(Tokens tokens, Mode mode) {
+        if (issuer.getTokenEndpoint() == null) {
+            throw new NullPointerException("issuer.tokenEndpoint");
+        }
 
-        var request = HttpRequest.newBuilder(toUri(issuer.getTokenEndpoint()))
-                .POST(HttpRequest.BodyPublishers.ofString(bodyParams.toQueryString()))
+        if (tokens.getRefreshToken() == null) {
+            throw new NullPointerException("tokens.refreshToken");
+        }
+
+        var bodyParams = new QueryManipulator();
+        bodyParams.put("grant_type", "refresh_token");
+        bodyParams.put("refresh_token", tokens.getRefreshToken());
+
+        return grant(bodyParams, Map.of(), mode)
+                .thenApply(refreshed -> refreshed.getRefreshToken() != null ? refreshed
+                        : refreshed.toBuilder().refreshToken(tokens.getRefreshToken()).build())
+                .thenCompose(refreshed -> validateIdToken(refreshed, null, false))
+                .thenApply(refreshed -> {
+                    if (tokens.getIdToken() != null && refreshed.getIdToken() != null) {
+                        var expected = tokens.claims().get("sub");
+                        var actual = refreshed.claims().get("sub");
+                        if (!Objects.equals(expected, actual)) {
+                            throw new RelyingPartyException(String.format(
+                                    "sub mismatch; expected: [%s] actual: [%s]", expected, actual));
+                        }
+                    }
+                    return refreshed;
+                });
+    }
+
+    private CompletableFuture<Tokens> grant(QueryManipulator bodyParams, Map<String, List<String>> parameters,
+            Mode mode) {
+        var request = authenticatedPost(toUri(issuer.getTokenEndpoint()), bodyParams);
+
+        return send(mode, Endpoint.TOKEN, request, response -> {
+            try {
+                Tokens tokens = TOKENS_READER.readValue(response.body());
+                if (tokens.getError() != null) { // TODO: Handle errors better
+                    throw new IdpException(
+                            String.format(
+                                    "received error [%s] from IDP while fetching from token endpoint; response body: [%s]",
+                                    tokens.getError(), new String(response.body(), StandardCharsets.UTF_8)),
+                            tokens.getError(), parameters);
+                }
+                if (tokens.getExpiresIn() != null) {
+                    tokens = tokens.toBuilder()
+                            .expiresAt(clock.instant().plusSeconds(tokens.getExpiresIn()))
+                            .build();
+                }
+                return tokens;
+            } catch (IOException e) {
+                throw new RelyingPartyException("unable to deserialize JSON retrieved from token endpoint",
+                        e);
+            }
+        });
+    }
+
+    /**
+     * @return a form POST to {@code endpoint}, authenticated as this client
+     */
+    private HttpRequest authenticatedPost(URI endpoint, QueryManipulator form) {
+        final var builder = transport.newRequest(endpoint);
+        // RFC 7523 lets a client assertion for any endpoint be addressed to the token endpoint, which keeps one
+        // audience for all of them, so pregenerated assertions stay usable
+        var audience = issuer.getTokenEndpoint() != null ? toUri(issuer.getTokenEndpoint()) : endpoint;
+        (clientAuthentication != null ? clientAuthentication : ClientAuthentication.clientSecretPost(clientSecret))
+                .apply(clientId, audience, form, builder);
+
+        return builder
+                .POST(HttpRequest.BodyPublishers.ofString(form.toQueryString()))
                 .headers(
                         HttpHeaders.ACCEPT, ContentTypes.APPLICATION_JSON,
                         HttpHeaders.CONTENT_TYPE, ContentTypes.APPLICATION_FORM_URLENCODED)
                 .build();
+    }
 
-        var httpClient = httpClientFactory.get();
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                .thenApply(response -> {
-                    var mapper = new ObjectMapper();
-                    try {
-                        var tokens = mapper.readValue(response.body(), Tokens.class);
-                        if (tokens.getError() != null) { // TODO: Handle errors better
-                            throw new IdpException(
-                                    String.format(
-                                            "received error [%s] from IDP while fetching from token endpoint; response body: [%s]",
-                                            tokens.getError(), response.body()),
-                                    parameters);
-                        }
-                        return tokens;
-                    } catch (JsonProcessingException e) {
-                        throw new RelyingPartyException("unable to deserialize JSON retrieved from token endpoint",
-                                e);
-                    }
-                });
+    private CompletableFuture<Tokens> validateIdToken(Tokens tokens, String nonce, boolean checkNonce) {
+        if (tokens.getIdToken() == null) {
+            if (nonce != null) {
+                throw new RelyingPartyException("id_token not present in TokenSet");
+            }
+            return CompletableFuture.completedFuture(tokens);
+        }
+        var validator = idTokenValidator();
+        if (validator == null) {
+            if (checkNonce && nonce != null) {
+                throw new RelyingPartyException("unable to check the id_token nonce without the issuer"
+                        + " identifier and keys; use a discovered Issuer, or set its issuer and jwksUri");
+            }
+            return CompletableFuture.completedFuture(tokens);
+        }
+        var validation = checkNonce
+                ? validator.validate(tokens.getIdToken(), nonce)
+                : validator.validate(tokens.getIdToken());
+        return validation.thenApply(claims -> tokens);
+    }
+
+    /**
+     * @return the validator, or {@code null} when the issuer metadata it needs is unknown
+     */
+    private IdTokenValidator idTokenValidator() {
+        var validator = idTokenValidator.get();
+        if (validator != null) {
+            return validator;
+        }
+        if (issuer.getIssuer() == null || (jwksCache == null && issuer.getJwksUri() == null)) {
+            return null;
+        }
+
+        var keys = jwksCache;
+        if (keys == null) {
+            keys = JwksCache.builder()
+                    .jwksUri(toUri(issuer.getJwksUri()))
+                    .transport(transport)
+                    .instrumentation(instrumentation)
+                    .clock(clock)
+                    .build();
+        }
+        validator = IdTokenValidator.builder()
+                .issuer(issuer.getIssuer())
+                .clientId(clientId)
+                .keys(keys)
+                .clock(clock)
+                .clockTolerance(clockTolerance)
+                .build();
+        return idTokenValidator.compareAndSet(null, validator) ? validator : idTokenValidator.get();
+    }
+
+    public CompletableFuture<UserInfo> userinfo(Tokens tokens) {
+        return userinfo(tokens, Mode.ASYNC);
+    }
 
+    /**
+     * @param parseExecutor executor the userinfo response is parsed on
+     */
+    public CompletableFuture<UserInfo> userinfo(Tokens tokens, Executor parseExecutor) {
+        return userinfo(tokens, Mode.async(parseExecutor));
     }
 
-    public CompletableFuture<Map<String, Object>> userinfo(Tokens tokens) {
+    CompletableFuture<UserInfo> userinfo(Tokens tokens, Mode mode) {
         if (issuer.getUserinfoEndpoint() == null) {
             throw new NullPointerException("issuer.userinfoEndpoint");
         }
@@ -122,33 +454,184 @@ public class Client {
             throw new NullPointerException("tokens.accessToken");
         }
 
+        if (userinfoCache != null) {
+            return userinfoCache.get(tokens, () -> fetchUserinfo(tokens, mode.shared()));
+        }
+        return fetchUserinfo(tokens, mode);
+    }
+
+    private CompletableFuture<UserInfo> fetchUserinfo(Tokens tokens, Mode mode) {
         try {
-            var request = HttpRequest.newBuilder()
-                    .uri(issuer.getUserinfoEndpoint().toURI())
+            var request = transport.newRequest(issuer.getUserinfoEndpoint().toURI())
                     .GET()
                     .headers(
                             HttpHeaders.ACCEPT, ContentTypes.APPLICATION_JSON,
                             HttpHeaders.AUTHORIZATION, "Bearer " + tokens.getAccessToken())
                     .build();
 
-            var httpClient = httpClientFactory.get();
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                    .thenApply(response -> {
-                        var mapper = new ObjectMapper();
-                        try {
-                            return mapper.readValue(response.body(), new TypeReference<Map<String, Object>>() {
-                            });
-                        } catch (JsonProcessingException e) {
-                            throw new RelyingPartyException(
-                                    "unable to deserialize JSON retrieved from userinfo endpoint",
-                                    e);
-                        }
-                    });
+            return send(mode, Endpoint.USERINFO, request, response -> {
+                if (response.statusCode() != 200) {
+                    throw new IdpException(String.format(
+                            "unexpected status [%d] from userinfo endpoint", response.statusCode()));
+                }
+                return UserInfo.of(response.body());
+            });
         } catch (URISyntaxException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Asks the IdP whether {@code token} is active, see RFC 7662. Results are cached when an
+     * {@link IntrospectionCache} is configured.
+     */
+    public CompletableFuture<TokenIntrospection> introspect(String token) {
+        return introspect(token, Mode.ASYNC);
+    }
+
+    /**
+     * @param parseExecutor executor the introspection response is parsed on
+     */
+    public CompletableFuture<TokenIntrospection> introspect(String token, Executor parseExecutor) {
+        return introspect(token, Mode.async(parseExecutor));
+    }
+
+    CompletableFuture<TokenIntrospection> introspect(String token, Mode mode) {
+        if (issuer.getIntrospectionEndpoint() == null) {
+            throw new NullPointerException("issuer.introspectionEndpoint");
+        }
+
+        if (token == null) {
+            throw new NullPointerException("token");
+        }
+
+        if (introspectionCache != null) {
+            return introspectionCache.get(token, () -> fetchIntrospection(token, mode.shared()));
+        }
+        return fetchIntrospection(token, mode);
+    }
+
+    private CompletableFuture<TokenIntrospection> fetchIntrospection(String token, Mode mode) {
+        final var form = new QueryManipulator();
+        form.put("token", token);
+        var request = authenticatedPost(toUri(issuer.getIntrospectionEndpoint()), form);
+
+        return send(mode, Endpoint.INTROSPECTION, request, response -> {
+            if (response.statusCode() != 200) {
+                throw new IdpException(String.format(
+                        "unexpected status [%d] from introspection endpoint", response.statusCode()));
+            }
+            try {
+                return INTROSPECTION_READER.readValue(response.body());
+            } catch (IOException e) {
+                throw new RelyingPartyException("unable to deserialize JSON retrieved from introspection endpoint",
+                        e);
+            }
+        });
+    }
+
+    /**
+     * @return a blocking view of this client, meant for virtual threads
+     */
+    public SyncClient sync() {
+        return new SyncClient(this);
+    }
+
+    /**
+     * @param maxConcurrency how many calls made through the view may be in flight at once; further subscriptions wait
+     *                       for one of them to finish before sending anything
+     * @return a {@link java.util.concurrent.Flow} view of this client
+     */
+    public ReactiveClient reactive(int maxConcurrency) {
+        return new ReactiveClient(this, maxConcurrency);
+    }
+
+    /**
+     * Gets the client ready for its first calls: connects to the host of every configured endpoint the client calls,
+     * completing TLS and protocol negotiation (see {@link HttpTransport#warmUp}), fetches the JWKS and primes the
+     * JSON readers. Runs once; later calls return the same result.
+     *
+     * @return the warm-up of each endpoint, completing when all are done; failures are reported there rather than
+     *         failing the result
+     */
+    public CompletableFuture<List<WarmUp>> warmUp() {
+        var started = warmUps.get();
+        if (started != null) {
+            return started;
+        }
+        var result = new CompletableFuture<List<WarmUp>>();
+        if (!warmUps.compareAndSet(null, result)) {
+            return warmUps.get();
+        }
+
+        primeReaders();
+        var endpoints = new ArrayList<CompletableFuture<WarmUp>>();
+        if (issuer.getTokenEndpoint() != null) {
+            endpoints.add(warmUp(Endpoint.TOKEN, toUri(issuer.getTokenEndpoint())));
+        }
+        if (issuer.getUserinfoEndpoint() != null) {
+            endpoints.add(warmUp(Endpoint.USERINFO, toUri(issuer.getUserinfoEndpoint())));
+        }
+        if (issuer.getIntrospectionEndpoint() != null) {
+            endpoints.add(warmUp(Endpoint.INTROSPECTION, toUri(issuer.getIntrospectionEndpoint())));
+        }
+        var validator = clientId != null ? idTokenValidator() : null;
+        var keys = jwksCache != null ? jwksCache : validator != null ? validator.getKeys() : null;
+        if (keys != null) {
+            endpoints.add(warmUp(Endpoint.JWKS, keys.getJwksUri())
+                    .thenCompose(warmUp -> keys.refresh().handle((refreshed, error) -> error == null
+                            ? warmUp
+                            : warmUp.failed(error instanceof CompletionException ? error.getCause() : error))));
+        }
+
+        CompletableFuture.allOf(endpoints.toArray(CompletableFuture[]::new))
+                .thenRun(() -> result.complete(endpoints.stream().map(CompletableFuture::join).toList()));
+        return result;
+    }
+
+    private CompletableFuture<WarmUp> warmUp(Endpoint endpoint, URI uri) {
+        return transport.warmUp(endpoint, uri);
+    }
+
+    /**
+     * Has Jackson build the deserializers of the responses now rather than on the first call.
+     */
+    private static void primeReaders() {
+        try {
+            TOKENS_READER.readValue("{\"access_token\":\"\",\"expires_in\":0}");
+            INTROSPECTION_READER.readValue("{\"active\":false,\"aud\":\"\"}");
+            UserInfo.of("{\"sub\":\"\"}".getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T> CompletableFuture<T> send(Mode mode, Endpoint endpoint, HttpRequest request,
+            Function<HttpResponse<byte[]>, T> parser) {
+        if (!mode.blocking()) {
+            var response = transport.exchange(instrumentation, endpoint, request, parser, mode.parseExecutor());
+            return mode.cancellation() == null ? response : mode.cancellation().register(response);
+        }
+
+        // Everything chained onto the completed future runs on the calling thread as well
+        try {
+            return CompletableFuture.completedFuture(transport.execute(instrumentation, endpoint, request, parser));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Closes the transport the client created for itself. A transport, {@link JwtClientAuthentication} or cache handed
+     * to the builder may be shared, e.g. by a {@link ClientRegistry}, and is left to whoever created it.
+     */
+    @Override
+    public void close() {
+        if (ownsTransport) {
+            transport.close();
+        }
+    }
+
     private String firstVal(Map<String, List<String>> parameters, String key) {
         var values = parameters.get(key);
         if (values == null || values.isEmpty())
@@ -156,9 +639,36 @@ public class Client {
         return values.getFirst();
     }
 
+    /**
+     * How calls to the IdP are carried out: asynchronously, optionally parsing responses on a given executor, or
+     * blocking the calling thread and parsing on it. Asynchronous requests may be registered with a
+     * {@code cancellation} scope, so that cancelling it aborts them.
+     */
+    record Mode(boolean blocking, Executor parseExecutor, CancellationScope cancellation) {
+        static final Mode ASYNC = new Mode(false, null, null);
+        static final Mode BLOCKING = new Mode(true, null, null);
+
+        static Mode async(Executor parseExecutor) {
+            return parseExecutor == null ? ASYNC : new Mode(false, parseExecutor, null);
+        }
+
+        static Mode cancellable(CancellationScope cancellation) {
+            return new Mode(false, null, cancellation);
+        }
+
+        /**
+         * @return this mode without its cancellation scope, for requests whose result other callers share
+         */
+        Mode shared() {
+            return cancellation == null ? this : new Mode(blocking, parseExecutor, null);
+        }
+    }
+
     @Builder
     @Getter
     public static class Checks {
         private String state;
+        private String nonce;
+        private String codeVerifier;
     }
 }
@@ -0,0 +1,60 @@
+package com.etiennek.oidc.client;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.PrivateKey;
+import java.util.Base64;
+
+import com.etiennek.oidc.client.jose.JwsAlgorithm;
+import com.etiennek.oidc.client.utils.QueryManipulator;
+import com.etiennek.oidc.client.utils.Constants.HttpHeaders;
+
+import static com.etiennek.oidc.client.utils.UriUtils.*;
+
+/**
+ * How the client authenticates to the token endpoint, see OpenID Connect Core section 9. Clients without one
+ * configured use {@code client_secret_post} with their {@code clientSecret}.
+ */
+public sealed interface ClientAuthentication
+        permits ClientAuthentication.ClientSecretPost, ClientAuthentication.ClientSecretBasic, JwtClientAuthentication {
+
+    /**
+     * Adds the client's credentials to a token endpoint request.
+     */
+    void apply(String clientId, URI tokenEndpoint, QueryManipulator form, HttpRequest.Builder request);
+
+    static ClientAuthentication clientSecretPost(String clientSecret) {
+        return new ClientSecretPost(clientSecret);
+    }
+
+    static ClientAuthentication clientSecretBasic(String clientSecret) {
+        return new ClientSecretBasic(clientSecret);
+    }
+
+    static JwtClientAuthentication clientSecretJwt(String clientSecret) {
+        return JwtClientAuthentication.builder().secret(clientSecret.getBytes(StandardCharsets.UTF_8)).build();
+    }
+
+    static JwtClientAuthentication privateKeyJwt(PrivateKey privateKey, JwsAlgorithm algorithm, String keyId) {
+        return JwtClientAuthentication.builder().privateKey(privateKey).algorithm(algorithm).keyId(keyId).build();
+    }
+
+    record ClientSecretPost(String clientSecret) implements ClientAuthentication {
+        @Override
+        public void apply(String clientId, URI tokenEndpoint, QueryManipulator form, HttpRequest.Builder request) {
+            form.put("client_id", clientId);
+            form.put("client_secret", clientSecret);
+        }
+    }
+
+    record ClientSecretBasic(String clientSecret) implements ClientAuthentication {
+        @Override
+        public void apply(String clientId, URI tokenEndpoint, QueryManipulator form, HttpRequest.Builder request) {
+            // RFC 6749 section 2.3.1: both parts are form encoded before being joined
+            var credentials = urlEncode(clientId) + ":" + urlEncode(clientSecret);
+            request.header(HttpHeaders.AUTHORIZATION,
+                    "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+}
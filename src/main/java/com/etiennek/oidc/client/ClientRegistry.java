@@ -0,0 +1,214 @@
+package com.etiennek.oidc.client;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.etiennek.oidc.client.http.HttpTransport;
+import com.etiennek.oidc.client.jose.JwksCache;
+import com.etiennek.oidc.client.metrics.Instrumentation;
+import com.etiennek.oidc.client.utils.SingleFlight;
+
+import lombok.Builder;
+
+import static com.etiennek.oidc.client.utils.UriUtils.*;
+
+/**
+ * Clients of many tenants, created on first use from the builder {@code resolver} returns for a tenant id.
+ * <p>
+ * All clients share the registry's {@link HttpTransport} (and with it its connection pool, circuit breakers and
+ * retry budgets), and clients of the same issuer share one {@link JwksCache} unless the resolver sets their own.
+ * Tenants unused for {@code idleTimeout} are dropped and created again when next needed. {@link #reload(String)}
+ * swaps in a client with the current configuration; requests already running on the previous client finish on it.
+ * Clients built with {@code warmUp} are only handed out once {@link Client#warmUp() warmed up}. A
+ * {@link JwtClientAuthentication} is closed once no tenant's client uses it any more.
+ */
+public class ClientRegistry implements AutoCloseable {
+    private final Function<String, CompletableFuture<Client.ClientBuilder>> resolver;
+    private final HttpTransport transport;
+    private final boolean ownsTransport;
+    private final Instrumentation instrumentation;
+    private final long idleTimeoutMillis;
+    private final Clock clock;
+
+    private final ConcurrentHashMap<String, Tenant> tenants = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<URI, SharedKeys> keys = new ConcurrentHashMap<>();
+    /** The tenants using each {@link JwtClientAuthentication}, closed once none does */
+    private final ConcurrentHashMap<JwtClientAuthentication, Integer> authentications = new ConcurrentHashMap<>();
+    private final SingleFlight<String, Client> creations = new SingleFlight<>();
+    private final AtomicLong nextSweep = new AtomicLong();
+
+    /**
+     * @param resolver    returns the client builder of a tenant, with at least the issuer set
+     * @param idleTimeout defaults to 30 minutes
+     */
+    @Builder
+    private ClientRegistry(Function<String, CompletableFuture<Client.ClientBuilder>> resolver, HttpTransport transport,
+            Instrumentation instrumentation, Duration idleTimeout, Clock clock) {
+        if (resolver == null) {
+            throw new NullPointerException("resolver");
+        }
+        this.resolver = resolver;
+        this.ownsTransport = transport == null;
+        this.transport = transport == null ? HttpTransport.builder().build() : transport;
+        this.instrumentation = instrumentation;
+        this.idleTimeoutMillis = (idleTimeout == null ? Duration.ofMinutes(30) : idleTimeout).toMillis();
+        this.clock = clock == null ? Clock.systemUTC() : clock;
+    }
+
+    public CompletableFuture<Client> get(String tenantId) {
+        final var now = clock.millis();
+        sweep(now);
+
+        var tenant = tenants.get(tenantId);
+        if (tenant != null) {
+            tenant.lastAccess = now;
+            return CompletableFuture.completedFuture(tenant.client);
+        }
+        return creations.execute(tenantId, () -> create(tenantId));
+    }
+
+    /**
+     * Creates the tenant's client again from the resolver. Until that completes, and if it fails, {@link #get(String)}
+     * keeps returning the current client.
+     */
+    public CompletableFuture<Client> reload(String tenantId) {
+        return create(tenantId);
+    }
+
+    public void remove(String tenantId) {
+        var tenant = tenants.remove(tenantId);
+        if (tenant != null) {
+            retire(tenant);
+        }
+    }
+
+    /**
+     * Drops the tenants that weren't used for {@code idleTimeout}. Also runs as part of {@link #get(String)}.
+     */
+    public void evictIdle() {
+        final var cutoff = clock.millis() - idleTimeoutMillis;
+        tenants.forEach((id, tenant) -> {
+            if (tenant.lastAccess <= cutoff && tenants.remove(id, tenant)) {
+                retire(tenant);
+            }
+        });
+    }
+
+    public int size() {
+        return tenants.size();
+    }
+
+    private void sweep(long now) {
+        var next = nextSweep.get();
+        if (now >= next && nextSweep.compareAndSet(next, now + Math.max(1, idleTimeoutMillis / 4))) {
+            evictIdle();
+        }
+    }
+
+    private CompletableFuture<Client> create(String tenantId) {
+        return resolver.apply(tenantId).thenCompose(builder -> {
+            builder.transport(transport);
+            if (instrumentation != null) {
+                builder.instrumentation(instrumentation);
+            }
+
+            var client = builder.buildWithoutWarmUp();
+            URI keysUri = null;
+            if (client.getJwksCache() == null && client.getIssuer().getJwksUri() != null) {
+                keysUri = toUri(client.getIssuer().getJwksUri());
+                var shared = acquireKeys(keysUri);
+                try {
+                    client = builder.jwksCache(shared).buildWithoutWarmUp();
+                } catch (RuntimeException e) {
+                    releaseKeys(keysUri);
+                    throw e;
+                }
+            }
+            final var tenant = new Tenant(client, keysUri, clock.millis());
+
+            var ready = client.isWarmUp()
+                    ? client.warmUp().thenApply(warmUps -> tenant)
+                    : CompletableFuture.completedFuture(tenant);
+            return ready.thenApply(t -> publish(tenantId, t))
+                    .whenComplete((published, error) -> {
+                        if (error != null) {
+                            // Never stored, so it will never be retired
+                            releaseKeys(tenant.keysUri);
+                        }
+                    });
+        });
+    }
+
+    private Client publish(String tenantId, Tenant tenant) {
+        if (tenant.client.getClientAuthentication() instanceof JwtClientAuthentication jwt) {
+            authentications.merge(jwt, 1, Integer::sum);
+        }
+        var previous = tenants.put(tenantId, tenant);
+        if (previous != null) {
+            retire(previous);
+        }
+        return tenant.client;
+    }
+
+    private JwksCache acquireKeys(URI jwksUri) {
+        return keys.compute(jwksUri, (uri, shared) -> {
+            if (shared == null) {
+                var cache = JwksCache.builder()
+                        .jwksUri(uri)
+                        .transport(transport)
+                        .instrumentation(instrumentation)
+                        .clock(clock)
+                        .build();
+                return new SharedKeys(cache, 1);
+            }
+            return new SharedKeys(shared.cache(), shared.users() + 1);
+        }).cache();
+    }
+
+    /**
+     * Releases what only this tenant used. The transport is shared, so in-flight requests of the client still complete.
+     */
+    private void retire(Tenant tenant) {
+        releaseKeys(tenant.keysUri);
+        // Resolvers commonly hand the same authentication to a tenant's replacement, or to several tenants
+        if (tenant.client.getClientAuthentication() instanceof JwtClientAuthentication jwt
+                && authentications.computeIfPresent(jwt, (k, users) -> users == 1 ? null : users - 1) == null) {
+            jwt.close();
+        }
+    }
+
+    private void releaseKeys(URI keysUri) {
+        if (keysUri != null) {
+            keys.computeIfPresent(keysUri,
+                    (uri, shared) -> shared.users() == 1 ? null : new SharedKeys(shared.cache(), shared.users() - 1));
+        }
+    }
+
+    @Override
+    public void close() {
+        tenants.keySet().forEach(this::remove);
+        if (ownsTransport) {
+            transport.close();
+        }
+    }
+
+    private static final class Tenant {
+        final Client client;
+        final URI keysUri;
+        volatile long lastAccess;
+
+        Tenant(Client client, URI keysUri, long lastAccess) {
+            this.client = client;
+            this.keysUri = keysUri;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private record SharedKeys(JwksCache cache, int users) {
+    }
+}
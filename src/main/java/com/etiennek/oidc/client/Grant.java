@@ -0,0 +1,35 @@
+package com.etiennek.oidc.client;
+
+import java.net.URI;
+
+/**
+ * A grant that can be exchanged for tokens at the token endpoint, see {@link Client#exchange(Grant)}.
+ */
+public sealed interface Grant {
+    /**
+     * @param code         the authorization code received on the redirect URI
+     * @param redirectUri  the redirect URI the code was sent to
+     * @param nonce        the nonce sent in the authorization request, checked against the ID Token
+     * @param codeVerifier the PKCE code verifier of the authorization request, if any
+     */
+    record AuthorizationCode(String code, URI redirectUri, String nonce, String codeVerifier) implements Grant {
+        public AuthorizationCode(String code, URI redirectUri, String nonce) {
+            this(code, redirectUri, nonce, null);
+        }
+    }
+
+    record RefreshToken(Tokens tokens) implements Grant {
+    }
+
+    static AuthorizationCode authorizationCode(String code, URI redirectUri, String nonce) {
+        return new AuthorizationCode(code, redirectUri, nonce);
+    }
+
+    static AuthorizationCode authorizationCode(String code, URI redirectUri, String nonce, String codeVerifier) {
+        return new AuthorizationCode(code, redirectUri, nonce, codeVerifier);
+    }
+
+    static RefreshToken refreshToken(Tokens tokens) {
+        return new RefreshToken(tokens);
+    }
+}
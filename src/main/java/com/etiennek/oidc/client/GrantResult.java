@@ -0,0 +1,10 @@
+package com.etiennek.oidc.client;
+
+/**
+ * The outcome of exchanging one {@link Grant} of a bulk exchange: either {@code tokens} or {@code error} is set.
+ */
+public record GrantResult(Grant grant, Tokens tokens, Throwable error) {
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
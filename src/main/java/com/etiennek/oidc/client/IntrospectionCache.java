@@ -0,0 +1,63 @@
+package com.etiennek.oidc.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import com.etiennek.oidc.client.utils.BoundedCache;
+import com.etiennek.oidc.client.utils.Hashing;
+
+import lombok.Builder;
+
+/**
+ * Caches introspection results per token, keyed by the SHA-256 hash of the token. Active results live for
+ * {@code ttl}, but never past the token's {@code exp}; inactive ones for {@code negativeTtl}, so that repeated
+ * requests with a bad token don't each reach the IdP. Concurrent lookups of the same token share one request.
+ * <p>
+ * A cached result means a token revoked at the IdP is accepted until its entry expires; pick {@code ttl} accordingly.
+ */
+public class IntrospectionCache {
+    private final BoundedCache<String, TokenIntrospection> cache;
+    private final Duration ttl;
+    private final Duration negativeTtl;
+    private final Clock clock;
+
+    @Builder
+    private IntrospectionCache(Integer maximumSize, Duration ttl, Duration negativeTtl, Clock clock) {
+        this.clock = clock == null ? Clock.systemUTC() : clock;
+        this.ttl = ttl == null ? Duration.ofMinutes(1) : ttl;
+        this.negativeTtl = negativeTtl == null ? Duration.ofSeconds(10) : negativeTtl;
+        this.cache = BoundedCache.<String, TokenIntrospection>builder()
+                .maximumSize(maximumSize == null ? 10_000 : maximumSize)
+                .clock(this.clock)
+                .build();
+    }
+
+    CompletableFuture<TokenIntrospection> get(String token, Supplier<CompletableFuture<TokenIntrospection>> loader) {
+        return cache.get(Hashing.sha256(token), loader, this::ttl);
+    }
+
+    private Duration ttl(TokenIntrospection introspection) {
+        if (!introspection.isActive()) {
+            return negativeTtl;
+        }
+        if (introspection.expiresAt() == null) {
+            return ttl;
+        }
+        var remaining = Duration.between(clock.instant(), introspection.expiresAt());
+        return remaining.compareTo(ttl) < 0 ? remaining : ttl;
+    }
+
+    public void invalidate(String token) {
+        cache.invalidate(Hashing.sha256(token));
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public BoundedCache.Stats stats() {
+        return cache.stats();
+    }
+}
@@ -1,24 +1,49 @@
 package com.etiennek.oidc.client;
 
 import java.net.URL;
+import java.util.concurrent.CompletableFuture;
 
 import com.etiennek.oidc.client.Client.ClientBuilder;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
+import lombok.extern.jackson.Jacksonized;
+
+import static com.etiennek.oidc.client.utils.UriUtils.*;
 
 @Getter
 @Builder
+@Jacksonized
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class Issuer {
+    @JsonProperty("issuer")
+    private String issuer;
+    @JsonProperty("authorization_endpoint")
     private URL authorizationEndpoint;
+    @JsonProperty("token_endpoint")
     private URL tokenEndpoint;
+    @JsonProperty("userinfo_endpoint")
     private URL userinfoEndpoint;
+    @JsonProperty("jwks_uri")
+    private URL jwksUri;
+    @JsonProperty("introspection_endpoint")
+    private URL introspectionEndpoint;
 
     public ClientBuilder clientBuilder() {
         return Client.builder().issuer(this);
     }
 
+    public static CompletableFuture<Issuer> discover(String issuerUrl) {
+        return discover(toUrl(issuerUrl));
+    }
+
+    public static CompletableFuture<Issuer> discover(URL issuerUrl) {
+        return IssuerMetadataCache.shared().get(issuerUrl);
+    }
+
 }
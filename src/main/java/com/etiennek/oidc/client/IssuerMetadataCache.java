@@ -0,0 +1,167 @@
+package com.etiennek.oidc.client;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.etiennek.oidc.client.exceptions.IdpException;
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.etiennek.oidc.client.http.HttpTransport;
+import com.etiennek.oidc.client.metrics.Endpoint;
+import com.etiennek.oidc.client.metrics.Instrumentation;
+import com.etiennek.oidc.client.utils.JsonCodec;
+import com.etiennek.oidc.client.utils.SingleFlight;
+import com.etiennek.oidc.client.utils.Constants.ContentTypes;
+import com.etiennek.oidc.client.utils.Constants.HttpHeaders;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import lombok.Builder;
+
+/**
+ * Caches OpenID Provider metadata retrieved through OIDC Discovery.
+ * <p>
+ * Entries live for the {@code max-age} announced by the provider's {@code Cache-Control} header (clamped to
+ * [{@code minTtl}, {@code maxTtl}]) or {@code defaultTtl} when absent. Expired entries keep being served while a
+ * single background refresh runs, and concurrent discoveries of the same issuer share one request.
+ */
+public class IssuerMetadataCache implements AutoCloseable {
+    public static final String WELL_KNOWN_PATH = "/.well-known/openid-configuration";
+
+    private static final ObjectReader ISSUER_READER = JsonCodec.readerFor(Issuer.class);
+
+    private final HttpTransport transport;
+    private final Instrumentation instrumentation;
+    private final boolean ownsTransport;
+    private final Duration defaultTtl;
+    private final Duration minTtl;
+    private final Duration maxTtl;
+    private final Duration failureBackoff;
+    private final Clock clock;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final SingleFlight<String, Issuer> discoveries = new SingleFlight<>();
+
+    @Builder
+    private IssuerMetadataCache(HttpTransport transport, Instrumentation instrumentation, Duration defaultTtl,
+            Duration minTtl, Duration maxTtl, Duration failureBackoff, Clock clock) {
+        this.ownsTransport = transport == null;
+        this.transport = transport == null ? HttpTransport.builder().build() : transport;
+        this.instrumentation = instrumentation == null ? Instrumentation.NOOP : instrumentation;
+        this.defaultTtl = defaultTtl == null ? Duration.ofHours(1) : defaultTtl;
+        this.minTtl = minTtl == null ? Duration.ofMinutes(1) : minTtl;
+        this.maxTtl = maxTtl == null ? Duration.ofDays(1) : maxTtl;
+        this.failureBackoff = failureBackoff == null ? Duration.ofSeconds(30) : failureBackoff;
+        this.clock = clock == null ? Clock.systemUTC() : clock;
+    }
+
+    public static IssuerMetadataCache shared() {
+        return Shared.INSTANCE;
+    }
+
+    public CompletableFuture<Issuer> get(URL issuerUrl) {
+        var entry = entries.get(issuerUrl.toString());
+        if (entry == null) {
+            return refresh(issuerUrl);
+        }
+
+        if (!clock.instant().isBefore(entry.expiresAt())) {
+            refresh(issuerUrl);
+        }
+        return CompletableFuture.completedFuture(entry.issuer());
+    }
+
+    public CompletableFuture<Issuer> refresh(URL issuerUrl) {
+        final var key = issuerUrl.toString();
+        return discoveries.execute(key, () -> fetch(issuerUrl)
+                .whenComplete((issuer, error) -> {
+                    if (error != null) {
+                        // Keep serving the stale entry, but don't retry on every call
+                        entries.computeIfPresent(key,
+                                (k, stale) -> new Entry(stale.issuer(), clock.instant().plus(failureBackoff)));
+                    }
+                }));
+    }
+
+    public void invalidate(URL issuerUrl) {
+        entries.remove(issuerUrl.toString());
+    }
+
+    private CompletableFuture<Issuer> fetch(URL issuerUrl) {
+        final var key = issuerUrl.toString();
+        final var base = key.endsWith("/") ? key.substring(0, key.length() - 1) : key;
+        final var uri = URI.create(base + WELL_KNOWN_PATH);
+
+        var request = transport.newRequest(uri)
+                .GET()
+                .header(HttpHeaders.ACCEPT, ContentTypes.APPLICATION_JSON)
+                .build();
+
+        return transport.exchange(instrumentation, Endpoint.DISCOVERY, request, response -> {
+            if (response.statusCode() != 200) {
+                throw new IdpException(String.format(
+                        "unexpected status [%d] from discovery endpoint [%s]", response.statusCode(), uri));
+            }
+
+            Issuer issuer;
+            try {
+                issuer = ISSUER_READER.readValue(response.body());
+            } catch (IOException e) {
+                throw new RelyingPartyException(
+                        "unable to deserialize JSON retrieved from discovery endpoint", e);
+            }
+
+            if (!key.equals(issuer.getIssuer())) {
+                throw new IdpException(String.format("issuer not equal; expected: [%s] actual: [%s]",
+                        key, issuer.getIssuer()));
+            }
+
+            entries.put(key, new Entry(issuer, clock.instant().plus(ttl(response))));
+            return issuer;
+        });
+    }
+
+    private Duration ttl(HttpResponse<?> response) {
+        for (var header : response.headers().allValues(HttpHeaders.CACHE_CONTROL)) {
+            for (var directive : header.split(",")) {
+                var d = directive.trim().toLowerCase(Locale.ROOT);
+                if (d.equals("no-store") || d.equals("no-cache")) {
+                    return minTtl;
+                }
+                if (d.startsWith("max-age=")) {
+                    try {
+                        var maxAge = Duration.ofSeconds(Long.parseLong(d.substring("max-age=".length())));
+                        if (maxAge.compareTo(minTtl) < 0)
+                            return minTtl;
+                        if (maxAge.compareTo(maxTtl) > 0)
+                            return maxTtl;
+                        return maxAge;
+                    } catch (NumberFormatException e) {
+                        return defaultTtl;
+                    }
+                }
+            }
+        }
+        return defaultTtl;
+    }
+
+    @Override
+    public void close() {
+        if (ownsTransport) {
+            transport.close();
+        }
+    }
+
+    private record Entry(Issuer issuer, Instant expiresAt) {
+    }
+
+    private static final class Shared {
+        private static final IssuerMetadataCache INSTANCE = IssuerMetadataCache.builder().build();
+    }
+}
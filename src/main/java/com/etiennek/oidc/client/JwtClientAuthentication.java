@@ -0,0 +1,217 @@
+package com.etiennek.oidc.client;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.etiennek.oidc.client.jose.JwsAlgorithm;
+import com.etiennek.oidc.client.utils.DaemonThreadFactory;
+import com.etiennek.oidc.client.utils.JsonCodec;
+import com.etiennek.oidc.client.utils.QueryManipulator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import lombok.Builder;
+
+/**
+ * The {@code client_secret_jwt} (HS256 with {@code secret}) and {@code private_key_jwt} ({@code privateKey}) client
+ * authentication methods of RFC 7523.
+ * <p>
+ * The JWS header is encoded once and the claims only differ in {@code jti}, {@code iat} and {@code exp}, so producing
+ * an assertion is mostly the signature. Every assertion gets a random {@code jti} and is used for one request only.
+ * With {@code pregenerate} set, a background thread keeps that many assertions signed ahead of time; they're used
+ * while at least half of their {@code lifetime} remains, and requests sign inline when none are ready.
+ */
+public final class JwtClientAuthentication implements ClientAuthentication, AutoCloseable {
+    public static final String CLIENT_ASSERTION_TYPE = "urn:ietf:params:oauth:client-assertion-type:jwt-bearer";
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+    private static final String HMAC = "HmacSHA256";
+
+    private final PrivateKey privateKey;
+    private final JwsAlgorithm algorithm;
+    private final SecretKeySpec secret;
+    private final String audience;
+    private final long lifetime;
+    private final int pregenerate;
+    private final Clock clock;
+
+    private final String encodedHeader;
+    private final ConcurrentLinkedQueue<Mac> macs = new ConcurrentLinkedQueue<>();
+    private volatile Claims claims;
+
+    private final ExecutorService generator;
+    private final ConcurrentLinkedQueue<Assertion> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger readyCount = new AtomicInteger();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private volatile boolean closed;
+
+    /**
+     * @param algorithm defaults to RS256 for RSA keys and ES256 for EC keys
+     * @param audience  defaults to the token endpoint
+     * @param lifetime  defaults to 60 seconds
+     */
+    @Builder
+    private JwtClientAuthentication(PrivateKey privateKey, JwsAlgorithm algorithm, String keyId, byte[] secret,
+            String audience, Duration lifetime, int pregenerate, Clock clock) {
+        if ((privateKey == null) == (secret == null)) {
+            throw new IllegalArgumentException("exactly one of privateKey and secret is required");
+        }
+        if (privateKey != null) {
+            this.algorithm = algorithm != null ? algorithm
+                    : "EC".equals(privateKey.getAlgorithm()) ? JwsAlgorithm.ES256 : JwsAlgorithm.RS256;
+            if (!this.algorithm.getKeyType().equals(privateKey.getAlgorithm())) {
+                throw new IllegalArgumentException(String.format("%s requires an %s key",
+                        this.algorithm, this.algorithm.getKeyType()));
+            }
+        } else {
+            this.algorithm = null;
+        }
+        this.privateKey = privateKey;
+        this.secret = secret == null ? null : new SecretKeySpec(secret, HMAC);
+        this.audience = audience;
+        this.lifetime = (lifetime == null ? Duration.ofSeconds(60) : lifetime).toSeconds();
+        if (this.lifetime < 2) {
+            throw new IllegalArgumentException("lifetime must be at least 2 seconds");
+        }
+        this.pregenerate = pregenerate;
+        this.clock = clock == null ? Clock.systemUTC() : clock;
+
+        var header = new StringBuilder("{\"alg\":\"").append(privateKey != null ? this.algorithm.name() : "HS256")
+                .append("\",\"typ\":\"JWT\"");
+        if (keyId != null) {
+            header.append(",\"kid\":").append(json(keyId));
+        }
+        this.encodedHeader = BASE64URL.encodeToString(header.append('}').toString().getBytes(StandardCharsets.UTF_8))
+                + ".";
+        this.generator = pregenerate > 0
+                ? Executors.newSingleThreadExecutor(new DaemonThreadFactory("oidc-client-assertions"))
+                : null;
+    }
+
+    @Override
+    public void apply(String clientId, URI tokenEndpoint, QueryManipulator form, HttpRequest.Builder request) {
+        form.put("client_assertion_type", CLIENT_ASSERTION_TYPE);
+        form.put("client_assertion", assertion(clientId, audience != null ? audience : tokenEndpoint.toString()));
+    }
+
+    /**
+     * @return a signed client assertion that hasn't been handed out before
+     */
+    public String assertion(String clientId, String audience) {
+        var current = claims;
+        if (current == null || !current.clientId().equals(clientId) || !current.audience().equals(audience)) {
+            claims = current = new Claims(clientId, audience,
+                    "{\"iss\":" + json(clientId) + ",\"sub\":" + json(clientId) + ",\"aud\":" + json(audience)
+                            + ",\"jti\":\"");
+        }
+        if (generator == null) {
+            return sign(current);
+        }
+
+        final var freshAfter = clock.millis() / 1000 + lifetime / 2;
+        Assertion assertion;
+        while ((assertion = ready.poll()) != null) {
+            readyCount.decrementAndGet();
+            if (assertion.claims() == current && assertion.expiresAt() >= freshAfter) {
+                break;
+            }
+        }
+        refill();
+        return assertion != null ? assertion.value() : sign(current);
+    }
+
+    private void refill() {
+        if (readyCount.get() > pregenerate / 2 || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            generator.execute(() -> {
+                try {
+                    while (readyCount.get() < pregenerate) {
+                        var current = claims;
+                        var value = sign(current);
+                        ready.add(new Assertion(value, current, clock.millis() / 1000 + lifetime));
+                        readyCount.incrementAndGet();
+                    }
+                } finally {
+                    refilling.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refilling.set(false);
+        }
+    }
+
+    private String sign(Claims claims) {
+        var jti = new byte[16];
+        RANDOM.nextBytes(jti);
+        var iat = clock.millis() / 1000;
+        var payload = claims.prefix() + BASE64URL.encodeToString(jti) + "\",\"iat\":" + iat + ",\"exp\":"
+                + (iat + lifetime) + "}";
+
+        var signingInput = encodedHeader + BASE64URL.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        var bytes = signingInput.getBytes(StandardCharsets.US_ASCII);
+        var signature = privateKey != null ? algorithm.sign(privateKey, bytes) : hmac(bytes);
+        return signingInput + "." + BASE64URL.encodeToString(signature);
+    }
+
+    private byte[] hmac(byte[] signingInput) {
+        var mac = macs.poll();
+        if (mac == null) {
+            try {
+                mac = Mac.getInstance(HMAC);
+                mac.init(secret);
+            } catch (GeneralSecurityException e) {
+                throw new RelyingPartyException("unable to sign client assertion", e);
+            }
+        }
+        try {
+            return mac.doFinal(signingInput);
+        } finally {
+            macs.offer(mac);
+        }
+    }
+
+    private static String json(String value) {
+        try {
+            return JsonCodec.mapper().writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (generator != null) {
+            generator.shutdownNow();
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    private record Claims(String clientId, String audience, String prefix) {
+    }
+
+    private record Assertion(String value, Claims claims, long expiresAt) {
+    }
+}
@@ -0,0 +1,161 @@
+package com.etiennek.oidc.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.etiennek.oidc.client.utils.CancellationScope;
+
+/**
+ * A {@link Flow} view of a {@link Client}, for reactive callers.
+ * <p>
+ * Each method returns a cold publisher of a single item: every subscription makes its own call, which is only sent
+ * once the subscriber has requested it and fewer than {@code maxConcurrency} calls of this view are in flight, so
+ * demand rather than arrivals sets the load on the IdP. Cancelling a subscription before then sends nothing;
+ * cancelling it afterwards aborts the HTTP request in flight along with any retry or hedge still to come. Signals are
+ * delivered on the thread completing the call, without hops through an executor.
+ */
+public class ReactiveClient {
+    private static final int NEW = 0, WAITING = 1, RUNNING = 2, DONE = 3;
+
+    private final Client client;
+    private final AtomicInteger available;
+    private final ConcurrentLinkedQueue<Call<?>> waiting = new ConcurrentLinkedQueue<>();
+    // Serializes drain(): only the thread that moves it from 0 runs the loop, others just flag more work
+    private final AtomicInteger wip = new AtomicInteger();
+
+    ReactiveClient(Client client, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.client = client;
+        this.available = new AtomicInteger(maxConcurrency);
+    }
+
+    public Client async() {
+        return client;
+    }
+
+    public Flow.Publisher<Tokens> exchange(Grant grant) {
+        return publisher(mode -> client.exchange(grant, mode));
+    }
+
+    public Flow.Publisher<Tokens> refresh(Tokens tokens) {
+        return publisher(mode -> client.refresh(tokens, mode));
+    }
+
+    /**
+     * With a userinfo cache, concurrent subscriptions for the same tokens share one request, which cancelling one of
+     * them therefore doesn't abort.
+     */
+    public Flow.Publisher<UserInfo> userinfo(Tokens tokens) {
+        return publisher(mode -> client.userinfo(tokens, mode));
+    }
+
+    private <T> Flow.Publisher<T> publisher(Function<Client.Mode, CompletableFuture<T>> call) {
+        return subscriber -> {
+            if (subscriber == null) {
+                throw new NullPointerException("subscriber");
+            }
+            subscriber.onSubscribe(new Call<>(subscriber, call));
+        };
+    }
+
+    private void release() {
+        available.incrementAndGet();
+        drain();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+
+        var missed = 1;
+        do {
+            Call<?> next;
+            while (available.get() > 0 && (next = waiting.poll()) != null) {
+                available.decrementAndGet();
+                if (!next.start()) {
+                    available.incrementAndGet();
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private final class Call<T> implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Function<Client.Mode, CompletableFuture<T>> call;
+        private final CancellationScope cancellation = new CancellationScope();
+        private final AtomicInteger state = new AtomicInteger(NEW);
+
+        private Call(Flow.Subscriber<? super T> subscriber, Function<Client.Mode, CompletableFuture<T>> call) {
+            this.subscriber = subscriber;
+            this.call = call;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                if (terminate()) {
+                    subscriber.onError(new IllegalArgumentException("non-positive request: " + n));
+                }
+                return;
+            }
+            if (state.compareAndSet(NEW, WAITING)) {
+                waiting.offer(this);
+                drain();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            terminate();
+        }
+
+        private boolean terminate() {
+            var previous = state.getAndSet(DONE);
+            if (previous == WAITING) {
+                waiting.remove(this);
+            } else if (previous == RUNNING) {
+                cancellation.cancel();
+            }
+            return previous != DONE;
+        }
+
+        /**
+         * @return whether the call was made, and so holds a permit until it completes
+         */
+        private boolean start() {
+            if (!state.compareAndSet(WAITING, RUNNING)) {
+                return false;
+            }
+
+            CompletableFuture<T> future;
+            try {
+                future = call.apply(Client.Mode.cancellable(cancellation));
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((value, error) -> {
+                release();
+                if (!state.compareAndSet(RUNNING, DONE)) {
+                    return;
+                }
+                if (error == null) {
+                    subscriber.onNext(value);
+                    subscriber.onComplete();
+                } else {
+                    subscriber.onError(error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause()
+                            : error);
+                }
+            });
+            return true;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.etiennek.oidc.client;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import com.etiennek.oidc.client.utils.Futures;
+
+/**
+ * A blocking view of a {@link Client}, meant to be called from virtual threads.
+ * <p>
+ * Each call sends its request and parks the calling thread until the response arrives, then parses and validates it
+ * on that same thread, so there are no hops through the client's executors on the way back. The library guards its
+ * shared state with atomics and {@link java.util.concurrent.locks.ReentrantLock}s rather than {@code synchronized},
+ * so waiting never pins the carrier thread. Failures are thrown as is rather than wrapped in a
+ * {@link java.util.concurrent.CompletionException}.
+ */
+public class SyncClient {
+    private final Client client;
+
+    SyncClient(Client client) {
+        this.client = client;
+    }
+
+    public Client async() {
+        return client;
+    }
+
+    public Tokens oauthCallback(URI redirectUri, Map<String, List<String>> parameters, Client.Checks checks) {
+        return Futures.await(client.oauthCallback(redirectUri, parameters, checks, Client.Mode.BLOCKING));
+    }
+
+    public Tokens oauthCallback(URI redirectUri, CharSequence query, Client.Checks checks) {
+        return Futures.await(client.oauthCallback(redirectUri, CallbackParameters.parse(query), checks,
+                Client.Mode.BLOCKING));
+    }
+
+    public Tokens exchange(Grant grant) {
+        return Futures.await(client.exchange(grant, Client.Mode.BLOCKING));
+    }
+
+    public Tokens refresh(Tokens tokens) {
+        return Futures.await(client.refresh(tokens, Client.Mode.BLOCKING));
+    }
+
+    public UserInfo userinfo(Tokens tokens) {
+        return Futures.await(client.userinfo(tokens, Client.Mode.BLOCKING));
+    }
+
+    public TokenIntrospection introspect(String token) {
+        return Futures.await(client.introspect(token, Client.Mode.BLOCKING));
+    }
+}
@@ -0,0 +1,60 @@
+package com.etiennek.oidc.client;
+
+import java.time.Instant;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * A token introspection response, see RFC 7662 section 2.2. Only {@code active} is guaranteed to be present.
+ */
+@Builder
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@ToString
+@EqualsAndHashCode
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TokenIntrospection {
+    @JsonProperty("active")
+    private boolean active;
+    @JsonProperty("scope")
+    private String scope;
+    @JsonProperty("client_id")
+    private String clientId;
+    @JsonProperty("username")
+    private String username;
+    @JsonProperty("token_type")
+    private String tokenType;
+    @JsonProperty("exp")
+    private Long exp;
+    @JsonProperty("iat")
+    private Long iat;
+    @JsonProperty("nbf")
+    private Long nbf;
+    @JsonProperty("sub")
+    private String sub;
+    @JsonProperty("aud")
+    @JsonFormat(with = JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
+    private List<String> aud;
+    @JsonProperty("iss")
+    private String iss;
+    @JsonProperty("jti")
+    private String jti;
+
+    /**
+     * @return when the token expires, or null when the IdP didn't say
+     */
+    public Instant expiresAt() {
+        return exp == null ? null : Instant.ofEpochSecond(exp);
+    }
+}
@@ -0,0 +1,164 @@
+package com.etiennek.oidc.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.etiennek.oidc.client.utils.DaemonThreadFactory;
+import com.etiennek.oidc.client.utils.SingleFlight;
+
+import lombok.Builder;
+
+/**
+ * Holds the tokens of sessions and renews them through the refresh_token grant before they expire.
+ * <p>
+ * Each session is renewed {@code refreshAhead} before its access token expires, minus a random delay of up to
+ * {@code jitter} so that sessions which logged in together don't all hit the token endpoint at the same moment.
+ * Concurrent refreshes of the same session share a single in-flight request.
+ */
+public class TokenManager implements AutoCloseable {
+    private final Client client;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+    private final Duration refreshAhead;
+    private final Duration jitter;
+    private final Duration retryDelay;
+    private final Clock clock;
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SingleFlight<String, Tokens> refreshes = new SingleFlight<>();
+
+    @Builder
+    private TokenManager(Client client, ScheduledExecutorService scheduler, Duration refreshAhead, Duration jitter,
+            Duration retryDelay, Clock clock) {
+        if (client == null) {
+            throw new NullPointerException("client");
+        }
+        this.client = client;
+        this.ownsScheduler = scheduler == null;
+        this.scheduler = scheduler == null
+                ? Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("oidc-client-token-manager"))
+                : scheduler;
+        this.refreshAhead = refreshAhead == null ? Duration.ofSeconds(60) : refreshAhead;
+        this.jitter = jitter == null ? Duration.ofSeconds(30) : jitter;
+        this.retryDelay = retryDelay == null ? Duration.ofSeconds(15) : retryDelay;
+        this.clock = clock == null ? client.getClock() : clock;
+    }
+
+    public void put(String sessionId, Tokens tokens) {
+        var previous = sessions.put(sessionId, new Session(tokens, schedule(sessionId, tokens)));
+        cancel(previous);
+    }
+
+    public void remove(String sessionId) {
+        cancel(sessions.remove(sessionId));
+    }
+
+    /**
+     * @return the current tokens of the session, refreshed first when the access token already expired
+     */
+    public CompletableFuture<Tokens> get(String sessionId) {
+        var session = sessions.get(sessionId);
+        if (session == null) {
+            return CompletableFuture.failedFuture(unknownSession(sessionId));
+        }
+
+        var expiresAt = session.tokens().getExpiresAt();
+        if (expiresAt != null && !clock.instant().isBefore(expiresAt)) {
+            return refresh(sessionId);
+        }
+        return CompletableFuture.completedFuture(session.tokens());
+    }
+
+    public CompletableFuture<Tokens> refresh(String sessionId) {
+        return refreshes.execute(sessionId, () -> {
+            var session = sessions.get(sessionId);
+            if (session == null) {
+                return CompletableFuture.failedFuture(unknownSession(sessionId));
+            }
+
+            return client.refresh(session.tokens())
+                    .thenApply(refreshed -> {
+                        var installed = sessions.computeIfPresent(sessionId, (id, current) -> {
+                            if (current.tokens() != session.tokens()) {
+                                // A new login was put while refreshing; the old session's tokens mustn't replace it
+                                return current;
+                            }
+                            cancel(current);
+                            return new Session(refreshed, schedule(id, refreshed));
+                        });
+                        return installed == null ? refreshed : installed.tokens();
+                    });
+        });
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private ScheduledFuture<?> schedule(String sessionId, Tokens tokens) {
+        if (tokens.getRefreshToken() == null || tokens.getExpiresAt() == null) {
+            return null;
+        }
+
+        var renewAt = tokens.getExpiresAt().minus(refreshAhead).toEpochMilli();
+        if (!jitter.isZero()) {
+            renewAt -= ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1);
+        }
+        return schedule(sessionId, Math.max(0, renewAt - clock.millis()));
+    }
+
+    private ScheduledFuture<?> schedule(String sessionId, long delayMillis) {
+        return scheduler.schedule(() -> renew(sessionId), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void renew(String sessionId) {
+        refresh(sessionId).whenComplete((tokens, error) -> {
+            if (error == null) {
+                return;
+            }
+
+            // Try again until the access token actually expired; get() refreshes on demand after that
+            var session = sessions.get(sessionId);
+            if (session == null) {
+                return;
+            }
+            var expiresAt = session.tokens().getExpiresAt();
+            if (expiresAt != null && clock.instant().plus(retryDelay).isBefore(expiresAt)) {
+                var retry = schedule(sessionId, retryDelay.toMillis());
+                if (!sessions.replace(sessionId, session, new Session(session.tokens(), retry))) {
+                    retry.cancel(false);
+                }
+            }
+        });
+    }
+
+    private static void cancel(Session session) {
+        if (session != null && session.renewal() != null) {
+            session.renewal().cancel(false);
+        }
+    }
+
+    private static RelyingPartyException unknownSession(String sessionId) {
+        return new RelyingPartyException(String.format("unknown session [%s]", sessionId));
+    }
+
+    @Override
+    public void close() {
+        sessions.values().forEach(TokenManager::cancel);
+        sessions.clear();
+        if (ownsScheduler) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private record Session(Tokens tokens, ScheduledFuture<?> renewal) {
+    }
+}
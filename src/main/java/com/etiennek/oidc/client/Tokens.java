@@ -1,7 +1,16 @@
 package com.etiennek.oidc.client;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.etiennek.oidc.client.jose.Jws;
+import com.etiennek.oidc.client.utils.JsonCodec;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -10,7 +19,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
-@Builder
+@Builder(toBuilder = true)
 @Getter
 @AllArgsConstructor
 @NoArgsConstructor
@@ -18,14 +27,38 @@ import lombok.ToString;
 @EqualsAndHashCode
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Tokens {
+    private static final ObjectReader CLAIMS_READER = JsonCodec.readerFor(JsonCodec.MAP_TYPE);
+
     @JsonProperty("access_token")
     private String accessToken;
     @JsonProperty("token_type")
     private String tokenType;
     @JsonProperty("scope")
     private String scope;
+    @JsonProperty("id_token")
+    private String idToken;
+    @JsonProperty("refresh_token")
+    private String refreshToken;
+    @JsonProperty("expires_in")
+    private Long expiresIn;
+    @JsonIgnore
+    private Instant expiresAt;
 
     // Errors
     @JsonProperty("error")
     private String error;
+
+    /**
+     * @return the claims of the ID Token; these are decoded, not validated
+     */
+    public Map<String, Object> claims() {
+        if (idToken == null) {
+            throw new NullPointerException("idToken");
+        }
+        try {
+            return CLAIMS_READER.readValue(Jws.parse(idToken).payload());
+        } catch (IOException e) {
+            throw new RelyingPartyException("unable to deserialize JWT claims", e);
+        }
+    }
 }
@@ -0,0 +1,30 @@
+package com.etiennek.oidc.client;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import com.etiennek.oidc.client.utils.Hashing;
+
+/**
+ * The values an authorization request is bound to, created by {@link TransactionManager#begin()} and checked again
+ * on the callback.
+ *
+ * @param codeVerifier the PKCE code verifier; only its S256 {@link #codeChallenge() challenge} is sent to the IdP
+ */
+public record Transaction(String state, String nonce, String codeVerifier, Instant expiresAt) {
+    public static final String CODE_CHALLENGE_METHOD = "S256";
+
+    public String codeChallenge() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Hashing.sha256(codeVerifier.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    public Client.Checks checks() {
+        return Client.Checks.builder()
+                .state(state)
+                .nonce(nonce)
+                .codeVerifier(codeVerifier)
+                .build();
+    }
+}
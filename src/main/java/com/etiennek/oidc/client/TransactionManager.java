@@ -0,0 +1,208 @@
+package com.etiennek.oidc.client;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+
+import lombok.Builder;
+import lombok.Singular;
+
+/**
+ * Creates the state, nonce and PKCE code verifier of authorization requests and seals them into a compact, HMAC
+ * signed and expiring value, e.g. for a cookie. Any node holding the keys can open it on the callback, so no session
+ * store or sticky sessions are needed.
+ * <p>
+ * Keys are identified by a key ID that is part of the sealed value. To rotate, add a new key and make it the
+ * {@code signingKeyId}; values sealed with the previous key keep opening for as long as that key is configured.
+ * The sealed value is signed, not encrypted: the code verifier it contains is only meaningful together with an
+ * authorization code, which never passes through the browser's cookies.
+ */
+public class TransactionManager {
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int MIN_KEY_LENGTH = 32;
+    private static final byte VERSION = 1;
+    private static final int STATE_LENGTH = 16;
+    private static final int NONCE_LENGTH = 16;
+    // 32 random bytes encode to the minimum verifier length of 43 characters
+    private static final int VERIFIER_LENGTH = 32;
+    private static final int MAC_LENGTH = 32;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Map<String, Key> keys = new HashMap<>();
+    private final Key signingKey;
+    private final Duration ttl;
+    private final Clock clock;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * @param keys         HMAC keys of at least 32 bytes by key ID; IDs are 1 to 255 ASCII characters other than
+     *                     {@code .}
+     * @param signingKeyId ID of the key new values are sealed with
+     * @param ttl          how long a transaction stays valid
+     */
+    @Builder
+    private TransactionManager(@Singular Map<String, byte[]> keys, String signingKeyId, Duration ttl, Clock clock) {
+        keys.forEach((kid, secret) -> {
+            if (secret.length < MIN_KEY_LENGTH) {
+                throw new IllegalArgumentException(String.format("key [%s] must be at least %d bytes", kid,
+                        MIN_KEY_LENGTH));
+            }
+            // Sealed values carry the ID as ASCII behind a one byte length
+            if (kid.isEmpty() || kid.length() > 255 || kid.indexOf('.') >= 0
+                    || !StandardCharsets.US_ASCII.newEncoder().canEncode(kid)) {
+                throw new IllegalArgumentException(String.format("invalid key ID [%s]", kid));
+            }
+            this.keys.put(kid, new Key(kid, new SecretKeySpec(secret, MAC_ALGORITHM)));
+        });
+        this.signingKey = this.keys.get(signingKeyId);
+        if (signingKey == null) {
+            throw new IllegalArgumentException(String.format("no key with ID [%s]", signingKeyId));
+        }
+        this.ttl = ttl == null ? Duration.ofMinutes(10) : ttl;
+        this.clock = clock == null ? Clock.systemUTC() : clock;
+    }
+
+    public Transaction begin() {
+        return new Transaction(randomString(STATE_LENGTH), randomString(NONCE_LENGTH), randomString(VERIFIER_LENGTH),
+                clock.instant().plus(ttl).truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    /**
+     * @param transaction a transaction created by {@link #begin()}
+     * @return {@code transaction} as a URL and cookie safe string
+     */
+    public String seal(Transaction transaction) {
+        var kid = signingKey.kid.getBytes(StandardCharsets.US_ASCII);
+        var state = DECODER.decode(transaction.state());
+        var nonce = DECODER.decode(transaction.nonce());
+        var verifier = DECODER.decode(transaction.codeVerifier());
+
+        var payload = ByteBuffer.allocate(2 + kid.length + Long.BYTES + 3 + state.length + nonce.length
+                + verifier.length);
+        payload.put(VERSION).put((byte) kid.length).put(kid).putLong(transaction.expiresAt().getEpochSecond());
+        payload.put((byte) state.length).put(state);
+        payload.put((byte) nonce.length).put(nonce);
+        payload.put((byte) verifier.length).put(verifier);
+
+        var bytes = payload.array();
+        return ENCODER.encodeToString(bytes) + "." + ENCODER.encodeToString(signingKey.mac(bytes));
+    }
+
+    /**
+     * Verifies and decodes a value created by {@link #seal(Transaction)}.
+     *
+     * @throws RelyingPartyException when the value was tampered with, signed with an unknown key, or expired
+     */
+    public Transaction open(String sealed) {
+        var dot = sealed == null ? -1 : sealed.indexOf('.');
+        if (dot < 0) {
+            throw invalid("malformed transaction");
+        }
+
+        byte[] payload, signature;
+        try {
+            payload = DECODER.decode(sealed.substring(0, dot));
+            signature = DECODER.decode(sealed.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            throw invalid("malformed transaction");
+        }
+        if (payload.length < 2 || payload[0] != VERSION || signature.length != MAC_LENGTH) {
+            throw invalid("malformed transaction");
+        }
+
+        var buffer = ByteBuffer.wrap(payload);
+        buffer.position(1);
+        try {
+            var kid = new String(read(buffer), StandardCharsets.US_ASCII);
+            var key = keys.get(kid);
+            if (key == null) {
+                throw invalid(String.format("transaction signed with unknown key [%s]", kid));
+            }
+            if (!MessageDigest.isEqual(key.mac(payload), signature)) {
+                throw invalid("transaction signature mismatch");
+            }
+
+            var expiresAt = Instant.ofEpochSecond(buffer.getLong());
+            var transaction = new Transaction(ENCODER.encodeToString(read(buffer)),
+                    ENCODER.encodeToString(read(buffer)), ENCODER.encodeToString(read(buffer)), expiresAt);
+            if (!clock.instant().isBefore(expiresAt)) {
+                throw invalid("transaction expired");
+            }
+            return transaction;
+        } catch (BufferUnderflowException e) {
+            throw invalid("malformed transaction");
+        }
+    }
+
+    /**
+     * @return the checks to pass to {@link Client#oauthCallback} for the transaction sealed in {@code sealed}
+     */
+    public Client.Checks checks(String sealed) {
+        return open(sealed).checks();
+    }
+
+    private String randomString(int length) {
+        var bytes = new byte[length];
+        random.nextBytes(bytes);
+        return ENCODER.encodeToString(bytes);
+    }
+
+    private static byte[] read(ByteBuffer buffer) {
+        var value = new byte[buffer.get() & 0xff];
+        buffer.get(value);
+        return value;
+    }
+
+    private static RelyingPartyException invalid(String message) {
+        return new RelyingPartyException(message);
+    }
+
+    /**
+     * A key with a lock-free pool of initialized {@link Mac}s, which are costly to create.
+     */
+    private record Key(String kid, SecretKeySpec secret, ConcurrentLinkedQueue<Mac> pool) {
+        Key(String kid, SecretKeySpec secret) {
+            this(kid, secret, new ConcurrentLinkedQueue<>());
+        }
+
+        byte[] mac(byte[] input) {
+            var mac = pool.poll();
+            if (mac == null) {
+                mac = newMac();
+            }
+            try {
+                return mac.doFinal(input);
+            } finally {
+                pool.offer(mac);
+            }
+        }
+
+        private Mac newMac() {
+            try {
+                var mac = Mac.getInstance(MAC_ALGORITHM);
+                mac.init(secret);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.etiennek.oidc.client;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.etiennek.oidc.client.utils.JsonCodec;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * The claims returned by the userinfo endpoint.
+ * <p>
+ * The standard claims are decoded when the response is read, which also checks that the whole response is well-formed
+ * JSON. Any other claim is only skipped over then and decoded when it's read through {@link #claim(String, Class)}, so
+ * large custom claims such as group lists cost little unless they're used. Instances are immutable and safe to share.
+ */
+public final class UserInfo {
+    private static final ObjectReader STANDARD_READER = JsonCodec.readerFor(StandardClaims.class)
+            .with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+    private static final ObjectReader MAP_READER = JsonCodec.readerFor(JsonCodec.MAP_TYPE);
+
+    private final byte[] json;
+    private final StandardClaims standard;
+
+    private UserInfo(byte[] json, StandardClaims standard) {
+        this.json = json;
+        this.standard = standard;
+    }
+
+    /**
+     * @param json a userinfo response body; must be a JSON object
+     * @throws RelyingPartyException when it isn't, or isn't valid JSON
+     */
+    public static UserInfo of(byte[] json) {
+        var i = 0;
+        while (i < json.length && Character.isWhitespace(json[i])) {
+            i++;
+        }
+        if (i == json.length || json[i] != '{') {
+            throw new RelyingPartyException("userinfo response must be a JSON object");
+        }
+        try {
+            return new UserInfo(json, STANDARD_READER.readValue(json));
+        } catch (IOException e) {
+            throw deserializationFailure(e);
+        }
+    }
+
+    public String getSub() {
+        return standard.getSub();
+    }
+
+    public String getName() {
+        return standard.getName();
+    }
+
+    public String getGivenName() {
+        return standard.getGivenName();
+    }
+
+    public String getFamilyName() {
+        return standard.getFamilyName();
+    }
+
+    public String getMiddleName() {
+        return standard.getMiddleName();
+    }
+
+    public String getNickname() {
+        return standard.getNickname();
+    }
+
+    public String getPreferredUsername() {
+        return standard.getPreferredUsername();
+    }
+
+    public String getProfile() {
+        return standard.getProfile();
+    }
+
+    public String getPicture() {
+        return standard.getPicture();
+    }
+
+    public String getWebsite() {
+        return standard.getWebsite();
+    }
+
+    public String getEmail() {
+        return standard.getEmail();
+    }
+
+    public Boolean getEmailVerified() {
+        return standard.getEmailVerified();
+    }
+
+    public String getGender() {
+        return standard.getGender();
+    }
+
+    public String getBirthdate() {
+        return standard.getBirthdate();
+    }
+
+    public String getZoneinfo() {
+        return standard.getZoneinfo();
+    }
+
+    public String getLocale() {
+        return standard.getLocale();
+    }
+
+    public String getPhoneNumber() {
+        return standard.getPhoneNumber();
+    }
+
+    public Boolean getPhoneNumberVerified() {
+        return standard.getPhoneNumberVerified();
+    }
+
+    public Address getAddress() {
+        return standard.getAddress();
+    }
+
+    public Instant getUpdatedAt() {
+        var updatedAt = standard.getUpdatedAt();
+        return updatedAt == null ? null : Instant.ofEpochSecond(updatedAt);
+    }
+
+    /**
+     * Decodes a single claim, leaving the rest of the response untouched.
+     *
+     * @return the claim, or null when absent
+     */
+    public <T> T claim(String name, Class<T> type) {
+        return claim(name, JsonCodec.mapper().constructType(type));
+    }
+
+    public <T> T claim(String name, TypeReference<T> type) {
+        return claim(name, JsonCodec.mapper().constructType(type));
+    }
+
+    private <T> T claim(String name, JavaType type) {
+        try (JsonParser parser = JsonCodec.mapper().createParser(json)) {
+            parser.nextToken();
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                if (parser.nextToken() != JsonToken.VALUE_NULL && field.equals(name)) {
+                    return JsonCodec.mapper().readValue(parser, type);
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            throw deserializationFailure(e);
+        }
+    }
+
+    /**
+     * Binds all claims to {@code type}, e.g. a record with {@code @JsonProperty} annotated components. Claims without
+     * a matching property are ignored.
+     */
+    public <T> T as(Class<T> type) {
+        try {
+            return JsonCodec.readerFor(type).readValue(json);
+        } catch (IOException e) {
+            throw deserializationFailure(e);
+        }
+    }
+
+    /**
+     * @return all claims, decoded into a new mutable map
+     */
+    public Map<String, Object> toMap() {
+        try {
+            return MAP_READER.readValue(json);
+        } catch (IOException e) {
+            throw deserializationFailure(e);
+        }
+    }
+
+    public String toJson() {
+        return new String(json, StandardCharsets.UTF_8);
+    }
+
+    private static RelyingPartyException deserializationFailure(IOException e) {
+        return new RelyingPartyException("unable to deserialize JSON retrieved from userinfo endpoint", e);
+    }
+
+    @Getter
+    @NoArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Address {
+        @JsonProperty("formatted")
+        private String formatted;
+        @JsonProperty("street_address")
+        private String streetAddress;
+        @JsonProperty("locality")
+        private String locality;
+        @JsonProperty("region")
+        private String region;
+        @JsonProperty("postal_code")
+        private String postalCode;
+        @JsonProperty("country")
+        private String country;
+    }
+
+    @Getter
+    @NoArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    static class StandardClaims {
+        @JsonProperty("sub")
+        private String sub;
+        @JsonProperty("name")
+        private String name;
+        @JsonProperty("given_name")
+        private String givenName;
+        @JsonProperty("family_name")
+        private String familyName;
+        @JsonProperty("middle_name")
+        private String middleName;
+        @JsonProperty("nickname")
+        private String nickname;
+        @JsonProperty("preferred_username")
+        private String preferredUsername;
+        @JsonProperty("profile")
+        private String profile;
+        @JsonProperty("picture")
+        private String picture;
+        @JsonProperty("website")
+        private String website;
+        @JsonProperty("email")
+        private String email;
+        @JsonProperty("email_verified")
+        private Boolean emailVerified;
+        @JsonProperty("gender")
+        private String gender;
+        @JsonProperty("birthdate")
+        private String birthdate;
+        @JsonProperty("zoneinfo")
+        private String zoneinfo;
+        @JsonProperty("locale")
+        private String locale;
+        @JsonProperty("phone_number")
+        private String phoneNumber;
+        @JsonProperty("phone_number_verified")
+        private Boolean phoneNumberVerified;
+        @JsonProperty("address")
+        private Address address;
+        @JsonProperty("updated_at")
+        private Long updatedAt;
+    }
+}
@@ -0,0 +1,55 @@
+package com.etiennek.oidc.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import com.etiennek.oidc.client.utils.BoundedCache;
+import com.etiennek.oidc.client.utils.Hashing;
+
+import lombok.Builder;
+
+/**
+ * Caches userinfo responses per access token, keyed by the SHA-256 hash of the token so the raw token isn't kept.
+ * Entries live for {@code ttl}, but never past the expiry of the access token they were retrieved with.
+ */
+public class UserinfoCache {
+    private final BoundedCache<String, UserInfo> cache;
+    private final Duration ttl;
+    private final Clock clock;
+
+    @Builder
+    private UserinfoCache(Integer maximumSize, Duration ttl, Clock clock) {
+        this.clock = clock == null ? Clock.systemUTC() : clock;
+        this.ttl = ttl == null ? Duration.ofMinutes(5) : ttl;
+        this.cache = BoundedCache.<String, UserInfo>builder()
+                .maximumSize(maximumSize == null ? 10_000 : maximumSize)
+                .clock(this.clock)
+                .build();
+    }
+
+    CompletableFuture<UserInfo> get(Tokens tokens, Supplier<CompletableFuture<UserInfo>> loader) {
+        return cache.get(Hashing.sha256(tokens.getAccessToken()), loader, userinfo -> ttl(tokens));
+    }
+
+    private Duration ttl(Tokens tokens) {
+        if (tokens.getExpiresAt() == null) {
+            return ttl;
+        }
+        var remaining = Duration.between(clock.instant(), tokens.getExpiresAt());
+        return remaining.compareTo(ttl) < 0 ? remaining : ttl;
+    }
+
+    public void invalidate(Tokens tokens) {
+        cache.invalidate(Hashing.sha256(tokens.getAccessToken()));
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public BoundedCache.Stats stats() {
+        return cache.stats();
+    }
+}
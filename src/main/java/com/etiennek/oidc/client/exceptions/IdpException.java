@@ -8,9 +8,19 @@ import lombok.Getter;
 @Getter
 public class IdpException extends RuntimeException {
     private Map<String, List<String>> parameters;
+    private String error;
+
+    public IdpException(String message) {
+        this(message, Map.of());
+    }
 
     public IdpException(String message, Map<String, List<String>> parameters) {
+        this(message, null, parameters);
+    }
+
+    public IdpException(String message, String error, Map<String, List<String>> parameters) {
         super(message);
+        this.error = error;
         this.parameters = parameters;
     }
 }
@@ -0,0 +1,36 @@
+package com.etiennek.oidc.client.exceptions;
+
+import java.util.Locale;
+import java.util.Map;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a call to an IdP endpoint fails fast because the endpoint is considered unhealthy or overloaded, or
+ * didn't answer in time.
+ */
+@Getter
+public class IdpUnavailableException extends IdpException {
+    public enum Reason {
+        /** The circuit breaker of the endpoint is open after too many failures */
+        CIRCUIT_OPEN,
+        /** The maximum number of concurrent requests to the endpoint is in flight */
+        BULKHEAD_FULL,
+        /** The endpoint didn't respond within the (adaptive) timeout */
+        TIMEOUT
+    }
+
+    private final Reason reason;
+
+    public IdpUnavailableException(Reason reason, String message) {
+        this(reason, message, null);
+    }
+
+    public IdpUnavailableException(Reason reason, String message, Throwable cause) {
+        super(message, reason.name().toLowerCase(Locale.ROOT), Map.of());
+        this.reason = reason;
+        if (cause != null) {
+            initCause(cause);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.etiennek.oidc.client.http;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A count-based circuit breaker. While closed, {@link #tryAcquire()} is a single volatile read; state transitions are
+ * guarded by a {@link ReentrantLock} rather than {@code synchronized} so virtual threads aren't pinned.
+ */
+final class CircuitBreaker {
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final ResiliencePolicy policy;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] window;
+
+    private volatile State state = State.CLOSED;
+    private int index;
+    private int calls;
+    private int failures;
+    private long openUntilNanos;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    CircuitBreaker(ResiliencePolicy policy) {
+        this.policy = policy;
+        this.window = new boolean[Math.max(1, policy.getSlidingWindowSize())];
+    }
+
+    State state() {
+        return state;
+    }
+
+    boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openUntilNanos < 0) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                halfOpenPermits = policy.getHalfOpenCalls();
+                halfOpenSuccesses = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                if (halfOpenPermits == 0) {
+                    return false;
+                }
+                halfOpenPermits--;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a permit that was acquired but not used.
+     */
+    void release() {
+        if (state == State.CLOSED) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                halfOpenPermits++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onSuccess() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                if (++halfOpenSuccesses >= policy.getHalfOpenCalls()) {
+                    reset();
+                    state = State.CLOSED;
+                }
+            } else if (state == State.CLOSED) {
+                record(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onFailure() {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                open();
+            } else if (state == State.CLOSED) {
+                record(true);
+                if (calls >= policy.getMinimumCalls()
+                        && failures >= policy.getFailureRateThreshold() * calls) {
+                    open();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(boolean failure) {
+        if (calls == window.length) {
+            if (window[index])
+                failures--;
+        } else {
+            calls++;
+        }
+        window[index] = failure;
+        if (failure)
+            failures++;
+        index = (index + 1) % window.length;
+    }
+
+    private void open() {
+        reset();
+        openUntilNanos = System.nanoTime() + policy.getOpenDuration().toNanos();
+        state = State.OPEN;
+    }
+
+    private void reset() {
+        index = 0;
+        calls = 0;
+        failures = 0;
+        Arrays.fill(window, false);
+    }
+}
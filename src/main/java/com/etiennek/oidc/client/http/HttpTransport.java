@@ -0,0 +1,605 @@
+package com.etiennek.oidc.client.http;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.etiennek.oidc.client.exceptions.IdpException;
+import com.etiennek.oidc.client.exceptions.IdpUnavailableException;
+import com.etiennek.oidc.client.exceptions.IdpUnavailableException.Reason;
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.etiennek.oidc.client.metrics.Endpoint;
+import com.etiennek.oidc.client.metrics.Instrumentation;
+import com.etiennek.oidc.client.metrics.Outcome;
+import com.etiennek.oidc.client.metrics.Phase;
+import com.etiennek.oidc.client.utils.CancellationScope;
+import com.etiennek.oidc.client.utils.DaemonThreadFactory;
+import com.etiennek.oidc.client.utils.Futures;
+import com.etiennek.oidc.client.utils.Hashing;
+import com.etiennek.oidc.client.utils.SingleFlight;
+import com.etiennek.oidc.client.utils.Constants.HttpHeaders;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Owns the {@link HttpClient} used to talk to an IdP. A transport is built once and reused for every call so that
+ * connections (and their TLS sessions) to the issuer hosts are kept alive and multiplexed over HTTP/2.
+ * <p>
+ * Every endpoint (scheme, authority and path) gets its own bulkhead, circuit breaker and adaptive timeout, configured
+ * by a {@link ResiliencePolicy}, so one slow or failing IdP endpoint can't tie up the callers of the others.
+ * Requests to {@link Endpoint#isIdempotent() idempotent} endpoints are additionally retried, and optionally hedged,
+ * according to a {@link RetryPolicy}.
+ */
+@Getter
+public class HttpTransport implements AutoCloseable {
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final ResiliencePolicy resilience;
+    private final RetryPolicy retry;
+
+    @Getter(AccessLevel.NONE)
+    private final ConcurrentHashMap<String, Guard> guards = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final RetryBudget retryBudget;
+    @Getter(AccessLevel.NONE)
+    private final ExecutorService ownedExecutor;
+    @Getter(AccessLevel.NONE)
+    private final boolean ownsHttpClient;
+    /** {@code null} when coalescing is off */
+    @Getter(AccessLevel.NONE)
+    private final SingleFlight<Flight, HttpResponse<byte[]>> flights;
+
+    /**
+     * @param connectTimeout timeout for establishing a new connection
+     * @param requestTimeout timeout for receiving the response headers of a request (read timeout)
+     * @param executor       executor used by the underlying {@link HttpClient}; not shut down on close
+     * @param poolSize       number of worker threads of the executor owned by this transport; ignored when an
+     *                       executor is supplied
+     * @param version        preferred HTTP version
+     * @param resilience     per endpoint bulkhead, circuit breaker and adaptive timeout settings
+     * @param retry          retry and hedging settings for idempotent endpoints
+     * @param coalesce       whether identical concurrent {@code GET}s share one request; defaults to {@code true}
+     */
+    @Builder
+    private HttpTransport(Duration connectTimeout, Duration requestTimeout, Executor executor, Integer poolSize,
+            HttpClient.Version version, ResiliencePolicy resilience, RetryPolicy retry, Boolean coalesce) {
+        this.requestTimeout = requestTimeout == null ? DEFAULT_REQUEST_TIMEOUT : requestTimeout;
+        this.resilience = resilience == null ? ResiliencePolicy.defaults() : resilience;
+        this.retry = retry == null ? RetryPolicy.defaults() : retry;
+        this.retryBudget = new RetryBudget(this.retry);
+        this.flights = coalesce == null || coalesce ? new SingleFlight<>() : null;
+
+        if (executor == null && poolSize != null) {
+            if (poolSize < 1) {
+                throw new IllegalArgumentException("poolSize must be positive");
+            }
+            this.ownedExecutor = Executors.newFixedThreadPool(poolSize,
+                    new DaemonThreadFactory("oidc-client-http-" + POOL_COUNTER.incrementAndGet()));
+            executor = this.ownedExecutor;
+        } else {
+            this.ownedExecutor = null;
+        }
+
+        var builder = HttpClient.newBuilder()
+                .version(version == null ? HttpClient.Version.HTTP_2 : version)
+                .connectTimeout(connectTimeout == null ? DEFAULT_CONNECT_TIMEOUT : connectTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER);
+        if (executor != null) {
+            builder.executor(executor);
+        }
+        this.httpClient = builder.build();
+        this.ownsHttpClient = true;
+    }
+
+    private HttpTransport(HttpClient httpClient, Duration requestTimeout) {
+        this.httpClient = httpClient;
+        this.requestTimeout = requestTimeout;
+        this.resilience = ResiliencePolicy.defaults();
+        this.retry = RetryPolicy.defaults();
+        this.retryBudget = new RetryBudget(this.retry);
+        this.ownedExecutor = null;
+        this.ownsHttpClient = false;
+        this.flights = new SingleFlight<>();
+    }
+
+    /**
+     * Wraps an externally managed {@link HttpClient}. Closing the returned transport does not close the client.
+     */
+    public static HttpTransport wrap(HttpClient httpClient) {
+        return new HttpTransport(httpClient, DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    public HttpRequest.Builder newRequest(URI uri) {
+        var builder = HttpRequest.newBuilder(uri);
+        if (requestTimeout != null) {
+            builder.timeout(requestTimeout);
+        }
+        return builder;
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request,
+            HttpResponse.BodyHandler<T> bodyHandler) {
+        return httpClient.sendAsync(request, bodyHandler);
+    }
+
+    /**
+     * Sends {@code request} to an IdP endpoint and parses the response body, reporting timings and the outcome to
+     * {@code instrumentation}.
+     * <p>
+     * Fails with an {@link IdpUnavailableException}, without sending the request, while the endpoint's circuit is
+     * open or its bulkhead is full, and when no response arrives within the endpoint's adaptive timeout. When all
+     * attempts answered with a retryable status the last response is handed to {@code parser}.
+     * <p>
+     * Cancelling the returned future aborts the requests in flight and any retry or hedge still to come; a cancelled
+     * request doesn't count as a failure towards the circuit breaker.
+     * <p>
+     * Concurrent {@code GET}s to an idempotent endpoint with the same URL and {@code Authorization} header share one
+     * request and its response, failure included, which each caller then parses itself. Cancelling a caller's future
+     * only detaches that caller; the request is aborted once all of them have cancelled.
+     */
+    public <T> CompletableFuture<T> exchange(Instrumentation instrumentation, Endpoint endpoint, HttpRequest request,
+            Function<HttpResponse<byte[]>, T> parser) {
+        return exchange(instrumentation, endpoint, request, parser, null);
+    }
+
+    /**
+     * Like {@link #exchange(Instrumentation, Endpoint, HttpRequest, Function)}, but runs {@code parser} on
+     * {@code parseExecutor} instead of the thread completing the response.
+     */
+    public <T> CompletableFuture<T> exchange(Instrumentation instrumentation, Endpoint endpoint, HttpRequest request,
+            Function<HttpResponse<byte[]>, T> parser, Executor parseExecutor) {
+        final var scope = new CancellationScope();
+        if (instrumentation == Instrumentation.NOOP) {
+            var response = respond(endpoint, request, scope);
+            return scope.cancelledBy(parseExecutor == null
+                    ? response.thenApply(parser)
+                    : response.thenApplyAsync(parser, parseExecutor));
+        }
+
+        final var uri = request.uri();
+        instrumentation.started(endpoint, uri);
+        final var start = System.nanoTime();
+        final Function<HttpResponse<byte[]>, T> timedParser = response -> {
+            final var parseStart = System.nanoTime();
+            try {
+                return parser.apply(response);
+            } finally {
+                instrumentation.timer(endpoint, Phase.PARSE, System.nanoTime() - parseStart);
+            }
+        };
+        var response = respond(endpoint, request, scope)
+                .whenComplete((r, error) -> instrumentation.timer(endpoint, Phase.REQUEST, System.nanoTime() - start));
+        return scope.cancelledBy((parseExecutor == null ? response.thenApply(timedParser)
+                : response.thenApplyAsync(timedParser, parseExecutor))
+                .whenComplete((result, error) -> {
+                    instrumentation.finished(endpoint, uri);
+                    report(instrumentation, endpoint, error);
+                }));
+    }
+
+    /**
+     * Blocking variant of {@link #exchange(Instrumentation, Endpoint, HttpRequest, Function)} meant for virtual
+     * threads: waits for the response by parking the calling thread and parses it on that same thread. Failures are
+     * thrown as is; I/O errors as {@link UncheckedIOException}. {@code GET}s are shared with concurrent identical ones
+     * as with {@code exchange}.
+     */
+    public <T> T execute(Instrumentation instrumentation, Endpoint endpoint, HttpRequest request,
+            Function<HttpResponse<byte[]>, T> parser) {
+        if (instrumentation == Instrumentation.NOOP) {
+            return parser.apply(Futures.await(respond(endpoint, request, null)));
+        }
+
+        final var uri = request.uri();
+        instrumentation.started(endpoint, uri);
+        Throwable error = null;
+        try {
+            HttpResponse<byte[]> response;
+            final var start = System.nanoTime();
+            try {
+                response = Futures.await(respond(endpoint, request, null));
+            } finally {
+                instrumentation.timer(endpoint, Phase.REQUEST, System.nanoTime() - start);
+            }
+
+            final var parseStart = System.nanoTime();
+            try {
+                return parser.apply(response);
+            } finally {
+                instrumentation.timer(endpoint, Phase.PARSE, System.nanoTime() - parseStart);
+            }
+        } catch (RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            instrumentation.finished(endpoint, uri);
+            report(instrumentation, endpoint, error);
+        }
+    }
+
+    /**
+     * Gets a connection to {@code uri}'s host ready ahead of the first call by sending it a {@code HEAD} request, so
+     * that the {@link HttpClient} resolves the host, connects, completes TLS and protocol negotiation and keeps the
+     * connection pooled for the calls that follow.
+     * <p>
+     * The request goes through the endpoint's bulkhead and circuit breaker like any other, but is sent once without
+     * retries or hedging, and its status is ignored. Failures are reported in the result rather than failing it.
+     */
+    public CompletableFuture<WarmUp> warmUp(Endpoint endpoint, URI uri) {
+        final var start = System.nanoTime();
+        try {
+            var request = newRequest(uri).method("HEAD", HttpRequest.BodyPublishers.noBody()).build();
+            var guard = guards.computeIfAbsent(guardKey(uri), k -> new Guard(k, resilience));
+            return send(request, guard, null).handle((response, error) -> new WarmUp(endpoint, uri,
+                    Duration.ofNanos(System.nanoTime() - start), error == null ? null : unwrap(error)));
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(
+                    new WarmUp(endpoint, uri, Duration.ofNanos(System.nanoTime() - start), e));
+        }
+    }
+
+    /**
+     * Dispatches {@code request}, or joins an identical {@code GET} already in flight.
+     *
+     * @param scope the call's requests are registered with, or {@code null} when the call can't be cancelled
+     */
+    private CompletableFuture<HttpResponse<byte[]>> respond(Endpoint endpoint, HttpRequest request,
+            CancellationScope scope) {
+        if (flights == null || !endpoint.isIdempotent() || !request.method().equals("GET")) {
+            return dispatch(endpoint, request, scope);
+        }
+
+        var authorization = request.headers().firstValue(HttpHeaders.AUTHORIZATION).map(Hashing::sha256);
+        var shared = flights.execute(new Flight(request.uri(), authorization.orElse(null)), () -> {
+            // Cancelled by the flight once every caller has detached
+            var flightScope = new CancellationScope();
+            return flightScope.cancelledBy(dispatch(endpoint, request, flightScope));
+        });
+        return scope == null ? shared : scope.register(shared);
+    }
+
+    /**
+     * @param scope the call's requests are registered with, or {@code null} when the call can't be cancelled
+     */
+    private CompletableFuture<HttpResponse<byte[]>> dispatch(Endpoint endpoint, HttpRequest request,
+            CancellationScope scope) {
+        final var guard = guards.computeIfAbsent(guardKey(request.uri()), k -> new Guard(k, resilience));
+        if (!endpoint.isIdempotent() || (retry.getMaxAttempts() <= 1 && !retry.isHedging())) {
+            return send(request, guard, scope);
+        }
+
+        retryBudget.deposit();
+        return attempt(request, guard, scope, 1);
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> attempt(HttpRequest request, Guard guard,
+            CancellationScope scope, int attempt) {
+        return hedge(request, guard, scope)
+                .handle((response, error) -> {
+                    var delay = retryDelay(response, error, attempt);
+                    if (delay == null || isCancelled(scope) || !retryBudget.tryWithdraw()) {
+                        return error == null
+                                ? CompletableFuture.completedFuture(response)
+                                : CompletableFuture.<HttpResponse<byte[]>>failedFuture(error);
+                    }
+                    var delayed = CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS);
+                    return CompletableFuture.runAsync(() -> {
+                    }, delayed).thenCompose(v -> isCancelled(scope)
+                            ? CompletableFuture.<HttpResponse<byte[]>>failedFuture(new CancellationException())
+                            : attempt(request, guard, scope, attempt + 1));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Sends a second request when the first one hasn't answered after the endpoint's hedging percentile, completing
+     * with the first successful response, or with the last failure when both fail. The request that loses is
+     * cancelled.
+     */
+    private CompletableFuture<HttpResponse<byte[]>> hedge(HttpRequest request, Guard guard, CancellationScope scope) {
+        var primary = send(request, guard, scope);
+        if (!retry.isHedging() || guard.latency.samples() < resilience.getMinimumSamples()) {
+            return primary;
+        }
+
+        var delay = Math.max(guard.latency.percentile(retry.getHedgePercentile()), retry.getMinHedgeDelay().toNanos());
+        var result = new CompletableFuture<HttpResponse<byte[]>>();
+        var hedged = new AtomicReference<CompletableFuture<HttpResponse<byte[]>>>();
+        // Requests that haven't settled yet; once it drops to 0 the outcome is decided and no hedge may join
+        var pending = new AtomicInteger(1);
+        var won = new AtomicBoolean();
+        BiConsumer<HttpResponse<byte[]>, Throwable> settle = (response, error) -> {
+            var last = pending.decrementAndGet() == 0;
+            if (error == null && !retry.getRetryableStatuses().contains(response.statusCode())) {
+                if (won.compareAndSet(false, true)) {
+                    // Cancel the loser before completing, so its permits are back by the time the caller carries on
+                    primary.cancel(true);
+                    var second = hedged.get();
+                    if (second != null) {
+                        second.cancel(true);
+                    }
+                    result.complete(response);
+                }
+            } else if (last && !won.get()) {
+                if (error == null) {
+                    result.complete(response);
+                } else {
+                    result.completeExceptionally(error);
+                }
+            }
+        };
+        primary.whenComplete(settle);
+
+        CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> {
+            if (result.isDone() || isCancelled(scope) || !retryBudget.tryWithdraw()) {
+                return;
+            }
+            if (!join(pending)) {
+                retryBudget.refund();
+                return;
+            }
+            try {
+                var second = send(request, guard, scope);
+                hedged.set(second);
+                if (result.isDone()) {
+                    second.cancel(true);
+                }
+                second.whenComplete(settle);
+            } catch (RuntimeException e) {
+                settle.accept(null, e);
+            }
+        });
+        return result;
+    }
+
+    private static boolean join(AtomicInteger pending) {
+        for (var n = pending.get(); n > 0; n = pending.get()) {
+            if (pending.compareAndSet(n, n + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Duration retryDelay(HttpResponse<byte[]> response, Throwable error, int attempt) {
+        if (attempt >= retry.getMaxAttempts()) {
+            return null;
+        }
+        if (error != null) {
+            return isRetryable(error) ? backoff(attempt) : null;
+        }
+        if (!retry.getRetryableStatuses().contains(response.statusCode())) {
+            return null;
+        }
+
+        var retryAfter = retryAfter(response);
+        if (retryAfter == null) {
+            return backoff(attempt);
+        }
+        return retryAfter.compareTo(retry.getMaxRetryAfter()) > 0 ? null : retryAfter;
+    }
+
+    private Duration backoff(int attempt) {
+        var cap = Math.min(retry.getMaxBackoff().toNanos(),
+                retry.getInitialBackoff().toNanos() * Math.pow(retry.getBackoffMultiplier(), attempt - 1));
+        return Duration.ofNanos(ThreadLocalRandom.current().nextLong((long) cap + 1));
+    }
+
+    private static Duration retryAfter(HttpResponse<?> response) {
+        var value = response.headers().firstValue(HttpHeaders.RETRY_AFTER).orElse(null);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            // Not delay-seconds, so it must be an HTTP-date
+        }
+        try {
+            var date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            var delay = Duration.between(Instant.now(), date);
+            return delay.isNegative() ? Duration.ZERO : delay;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        var cause = unwrap(error);
+        if (cause instanceof IdpUnavailableException e) {
+            return e.getReason() == Reason.TIMEOUT;
+        }
+        return cause instanceof IOException;
+    }
+
+    private static boolean isCancelled(CancellationScope scope) {
+        return scope != null && scope.isCancelled();
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> send(HttpRequest request, Guard guard, CancellationScope scope) {
+        final var key = guard.key;
+        if (!guard.breaker.tryAcquire()) {
+            return CompletableFuture.failedFuture(new IdpUnavailableException(Reason.CIRCUIT_OPEN,
+                    String.format("circuit breaker open for [%s]", key)));
+        }
+        if (!guard.bulkhead.tryAcquire()) {
+            guard.breaker.release();
+            return CompletableFuture.failedFuture(new IdpUnavailableException(Reason.BULKHEAD_FULL,
+                    String.format("too many concurrent requests to [%s]", key)));
+        }
+
+        if (guard.breaker.state() == CircuitBreaker.State.HALF_OPEN) {
+            // Latencies from before the circuit opened may be why it did; probe under the full request timeout
+            guard.latency.reset();
+        }
+
+        final var start = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> response;
+        try {
+            response = sendAsync(withTimeout(request, guard), HttpResponse.BodyHandlers.ofByteArray());
+            if (scope != null) {
+                scope.register(response);
+            }
+        } catch (RuntimeException e) {
+            guard.bulkhead.release();
+            guard.breaker.release();
+            throw e;
+        }
+
+        final var permit = new AtomicBoolean(true);
+        var result = response.handle((r, error) -> {
+            if (permit.getAndSet(false)) {
+                guard.bulkhead.release();
+            }
+            if (response.isCancelled()) {
+                guard.breaker.release();
+                throw failure(key, error);
+            }
+            if (error != null) {
+                if (unwrap(error) instanceof HttpTimeoutException) {
+                    // A lower bound, but without it a slowed-down endpoint would never raise its own timeout
+                    guard.latency.record(System.nanoTime() - start);
+                }
+                guard.breaker.onFailure();
+                throw failure(key, error);
+            }
+
+            guard.latency.record(System.nanoTime() - start);
+            if (r.statusCode() >= 500 || r.statusCode() == 429) {
+                guard.breaker.onFailure();
+            } else {
+                guard.breaker.onSuccess();
+            }
+            return r;
+        });
+        // Cancelling the returned future aborts the request, and hands its bulkhead permit back straight away rather
+        // than once the HTTP client got round to it
+        result.whenComplete((r, error) -> {
+            if (result.isCancelled()) {
+                if (permit.getAndSet(false)) {
+                    guard.bulkhead.release();
+                }
+                response.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private HttpRequest withTimeout(HttpRequest request, Guard guard) {
+        if (requestTimeout == null || guard.latency.samples() < resilience.getMinimumSamples()) {
+            return request;
+        }
+
+        var percentile = guard.latency.percentile(resilience.getTimeoutPercentile());
+        var timeout = Duration.ofNanos((long) (percentile * resilience.getTimeoutMultiplier()));
+        if (timeout.compareTo(resilience.getMinTimeout()) < 0) {
+            timeout = resilience.getMinTimeout();
+        }
+        if (timeout.compareTo(requestTimeout) >= 0) {
+            return request;
+        }
+        return HttpRequest.newBuilder(request, (name, value) -> true).timeout(timeout).build();
+    }
+
+    private static RuntimeException failure(String key, Throwable error) {
+        var cause = unwrap(error);
+        if (cause instanceof HttpTimeoutException) {
+            return new IdpUnavailableException(Reason.TIMEOUT,
+                    String.format("no response from [%s] in time", key), cause);
+        }
+        return error instanceof CompletionException e ? e : new CompletionException(error);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static String guardKey(URI uri) {
+        return uri.getScheme() + "://" + uri.getRawAuthority() + uri.getRawPath();
+    }
+
+    private static void report(Instrumentation instrumentation, Endpoint endpoint, Throwable error) {
+        var wrapped = error instanceof CompletionException || error instanceof UncheckedIOException;
+        if (wrapped && error.getCause() != null) {
+            error = error.getCause();
+        }
+
+        if (error == null) {
+            instrumentation.outcome(endpoint, Outcome.SUCCESS, null);
+        } else if (error instanceof IdpUnavailableException e && e.getReason() != Reason.TIMEOUT) {
+            instrumentation.outcome(endpoint, Outcome.REJECTED, e.getError());
+        } else if (error instanceof IdpUnavailableException e) {
+            instrumentation.outcome(endpoint, Outcome.TRANSPORT_ERROR, e.getError());
+        } else if (error instanceof IdpException e) {
+            instrumentation.outcome(endpoint, Outcome.IDP_ERROR, e.getError());
+        } else if (error instanceof RelyingPartyException) {
+            instrumentation.outcome(endpoint, Outcome.RELYING_PARTY_ERROR, null);
+        } else {
+            instrumentation.outcome(endpoint, Outcome.TRANSPORT_ERROR, error.getClass().getSimpleName());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsHttpClient) {
+            httpClient.close();
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    CircuitBreaker.State circuitState(URI uri) {
+        var guard = guards.get(guardKey(uri));
+        return guard == null ? CircuitBreaker.State.CLOSED : guard.breaker.state();
+    }
+
+    /**
+     * What makes two {@code GET}s interchangeable; the {@code Authorization} header is kept as a hash only.
+     */
+    private record Flight(URI uri, String authorization) {
+    }
+
+    private static final class Guard {
+        private final String key;
+        private final Semaphore bulkhead;
+        private final CircuitBreaker breaker;
+        private final LatencyTracker latency = new LatencyTracker();
+
+        private Guard(String key, ResiliencePolicy policy) {
+            this.key = key;
+            this.bulkhead = new Semaphore(policy.getMaxConcurrentRequests());
+            this.breaker = new CircuitBreaker(policy);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.etiennek.oidc.client.http;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the most recent latency samples of an endpoint in a ring buffer and periodically publishes a sorted copy,
+ * so percentile lookups on the request path are lock-free array reads.
+ */
+final class LatencyTracker {
+    private static final int SIZE = 256;
+    private static final int PUBLISH_EVERY = 32;
+    private static final long[] EMPTY = new long[0];
+
+    private final AtomicLongArray samples = new AtomicLongArray(SIZE);
+    private final AtomicLong count = new AtomicLong();
+    private volatile long[] sorted = EMPTY;
+
+    void record(long nanos) {
+        var n = count.getAndIncrement();
+        samples.set((int) (n % SIZE), nanos);
+        if (n < PUBLISH_EVERY || (n + 1) % PUBLISH_EVERY == 0) {
+            publish(Math.min(n + 1, SIZE));
+        }
+    }
+
+    private void publish(long size) {
+        var copy = new long[(int) size];
+        for (var i = 0; i < copy.length; i++) {
+            copy[i] = samples.get(i);
+        }
+        Arrays.sort(copy);
+        sorted = copy;
+    }
+
+    /**
+     * Forgets every sample, for when they no longer describe the endpoint.
+     */
+    void reset() {
+        count.set(0);
+        sorted = EMPTY;
+    }
+
+    int samples() {
+        return sorted.length;
+    }
+
+    /**
+     * @return the latency at percentile {@code q} (0 to 1) in nanos, or -1 without samples
+     */
+    long percentile(double q) {
+        var snapshot = sorted;
+        if (snapshot.length == 0) {
+            return -1;
+        }
+        var index = (int) Math.ceil(q * snapshot.length) - 1;
+        return snapshot[Math.max(0, Math.min(snapshot.length - 1, index))];
+    }
+}
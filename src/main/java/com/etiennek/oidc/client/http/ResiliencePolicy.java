@@ -0,0 +1,51 @@
+package com.etiennek.oidc.client.http;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Limits applied per IdP endpoint by {@link HttpTransport}: a bulkhead capping concurrent requests, a circuit breaker
+ * failing fast while the endpoint is unhealthy, and a request timeout derived from the endpoint's observed latency.
+ */
+@Getter
+@Builder
+public class ResiliencePolicy {
+    /** Maximum number of concurrent in-flight requests per endpoint */
+    @Builder.Default
+    private int maxConcurrentRequests = 64;
+
+    /** Number of most recent calls the failure rate is computed over */
+    @Builder.Default
+    private int slidingWindowSize = 50;
+    /** Minimum number of calls in the window before the circuit may open */
+    @Builder.Default
+    private int minimumCalls = 20;
+    /** Failure rate, from 0 to 1, at which the circuit opens */
+    @Builder.Default
+    private double failureRateThreshold = 0.5;
+    /** How long an open circuit rejects calls before letting probes through */
+    @Builder.Default
+    private Duration openDuration = Duration.ofSeconds(30);
+    /** Number of successful probes that close a half-open circuit */
+    @Builder.Default
+    private int halfOpenCalls = 3;
+
+    /** Latency percentile the adaptive timeout is based on */
+    @Builder.Default
+    private double timeoutPercentile = 0.99;
+    /** Factor applied to the latency percentile */
+    @Builder.Default
+    private double timeoutMultiplier = 3;
+    /** Lower bound of the adaptive timeout; the transport's request timeout is the upper bound */
+    @Builder.Default
+    private Duration minTimeout = Duration.ofSeconds(1);
+    /** Number of latency samples needed before the timeout adapts */
+    @Builder.Default
+    private int minimumSamples = 20;
+
+    public static ResiliencePolicy defaults() {
+        return ResiliencePolicy.builder().build();
+    }
+}
@@ -0,0 +1,43 @@
+package com.etiennek.oidc.client.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket shared by all endpoints of a transport: each request deposits a fraction of a token, each retry or
+ * hedge withdraws a whole one.
+ */
+final class RetryBudget {
+    private static final long SCALE = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    RetryBudget(RetryPolicy policy) {
+        this.deposit = (long) (policy.getBudgetRatio() * SCALE);
+        this.capacity = policy.getBudgetCapacity() * SCALE;
+        this.balance = new AtomicLong(capacity);
+    }
+
+    void deposit() {
+        balance.getAndUpdate(b -> Math.min(capacity, b + deposit));
+    }
+
+    /**
+     * Returns a token withdrawn for a retry or hedge that wasn't sent after all.
+     */
+    void refund() {
+        balance.getAndUpdate(b -> Math.min(capacity, b + SCALE));
+    }
+
+    boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        return true;
+    }
+}
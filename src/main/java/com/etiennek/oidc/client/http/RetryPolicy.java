@@ -0,0 +1,57 @@
+package com.etiennek.oidc.client.http;
+
+import java.time.Duration;
+import java.util.Set;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Retry and hedging settings applied by {@link HttpTransport} to requests to idempotent IdP endpoints.
+ * <p>
+ * Failed attempts are retried after an exponential backoff with full jitter, or after the {@code Retry-After} the IdP
+ * asked for. Every retry and hedge spends a token from a budget that is refilled by {@code budgetRatio} for each
+ * request, so that during an outage retries add at most that fraction of extra load.
+ */
+@Getter
+@Builder
+public class RetryPolicy {
+    /** Total number of attempts, including the first one */
+    @Builder.Default
+    private int maxAttempts = 3;
+    @Builder.Default
+    private Duration initialBackoff = Duration.ofMillis(100);
+    @Builder.Default
+    private Duration maxBackoff = Duration.ofSeconds(2);
+    @Builder.Default
+    private double backoffMultiplier = 2;
+    /** Longest {@code Retry-After} that is waited for; responses asking for more are returned as is */
+    @Builder.Default
+    private Duration maxRetryAfter = Duration.ofSeconds(10);
+    @Builder.Default
+    private Set<Integer> retryableStatuses = Set.of(408, 429, 500, 502, 503, 504);
+
+    /** Whether to send a second request when the first one is slower than {@code hedgePercentile} */
+    @Builder.Default
+    private boolean hedging = false;
+    @Builder.Default
+    private double hedgePercentile = 0.95;
+    /** Lower bound of the hedging delay */
+    @Builder.Default
+    private Duration minHedgeDelay = Duration.ofMillis(10);
+
+    /** Tokens added to the retry budget per request */
+    @Builder.Default
+    private double budgetRatio = 0.1;
+    /** Maximum (and initial) number of tokens in the retry budget */
+    @Builder.Default
+    private int budgetCapacity = 10;
+
+    public static RetryPolicy defaults() {
+        return RetryPolicy.builder().build();
+    }
+
+    public static RetryPolicy none() {
+        return RetryPolicy.builder().maxAttempts(1).build();
+    }
+}
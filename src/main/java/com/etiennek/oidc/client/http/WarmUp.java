@@ -0,0 +1,23 @@
+package com.etiennek.oidc.client.http;
+
+import java.net.URI;
+import java.time.Duration;
+
+import com.etiennek.oidc.client.metrics.Endpoint;
+
+/**
+ * How warming up the connection to an endpoint went.
+ *
+ * @param total how long the warm-up request took, connecting included
+ * @param error why warming up failed, or {@code null}
+ */
+public record WarmUp(Endpoint endpoint, URI uri, Duration total, Throwable error) {
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public WarmUp failed(Throwable error) {
+        return new WarmUp(endpoint, uri, total, error);
+    }
+}
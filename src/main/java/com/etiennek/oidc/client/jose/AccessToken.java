@@ -0,0 +1,83 @@
+package com.etiennek.oidc.client.jose;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.etiennek.oidc.client.utils.JsonCodec;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * The claims of a validated JWT access token, see RFC 9068 section 2.2. Claims without a getter are available through
+ * {@link #claims()}.
+ */
+@Getter
+public final class AccessToken {
+    private static final ObjectReader CLAIMS_READER = JsonCodec.readerFor(JsonCodec.MAP_TYPE);
+
+    private final String issuer;
+    private final String subject;
+    private final String clientId;
+    private final String scope;
+    private final List<String> audience;
+    private final String jti;
+    private final long exp;
+    private final long iat;
+    /** {@link Long#MIN_VALUE} when absent */
+    private final long nbf;
+    @Getter(AccessLevel.NONE)
+    private final byte[] payload;
+
+    AccessToken(String issuer, String subject, String clientId, String scope, List<String> audience, String jti,
+            long exp, long iat, long nbf, byte[] payload) {
+        this.issuer = issuer;
+        this.subject = subject;
+        this.clientId = clientId;
+        this.scope = scope;
+        this.audience = audience;
+        this.jti = jti;
+        this.exp = exp;
+        this.iat = iat;
+        this.nbf = nbf;
+        this.payload = payload;
+    }
+
+    public Instant expiresAt() {
+        return Instant.ofEpochSecond(exp);
+    }
+
+    /**
+     * @return whether {@code scope} is one of the space-delimited values of the {@code scope} claim
+     */
+    public boolean hasScope(String scope) {
+        if (this.scope == null || scope.isEmpty()) {
+            return false;
+        }
+        var from = 0;
+        while ((from = this.scope.indexOf(scope, from)) >= 0) {
+            var end = from + scope.length();
+            if ((from == 0 || this.scope.charAt(from - 1) == ' ')
+                    && (end == this.scope.length() || this.scope.charAt(end) == ' ')) {
+                return true;
+            }
+            from = end;
+        }
+        return false;
+    }
+
+    /**
+     * @return all claims, decoded into a new mutable map
+     */
+    public Map<String, Object> claims() {
+        try {
+            return CLAIMS_READER.readValue(payload);
+        } catch (IOException e) {
+            throw new RelyingPartyException("unable to deserialize JWT claims", e);
+        }
+    }
+}
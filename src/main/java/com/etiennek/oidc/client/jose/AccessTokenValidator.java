@@ -0,0 +1,280 @@
+package com.etiennek.oidc.client.jose;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.etiennek.oidc.client.utils.BoundedCache;
+import com.etiennek.oidc.client.utils.Hashing;
+import com.etiennek.oidc.client.utils.JsonCodec;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import lombok.Builder;
+
+/**
+ * Validates JWT access tokens locally, as described in RFC 9068 section 4: the {@code typ} header, the signature
+ * against the issuer's JWKS, and the {@code iss}, {@code aud}, {@code exp}, {@code nbf} and {@code scope} claims.
+ * <p>
+ * Only a token signed with a {@code kid} missing from the cached JWKS causes I/O. Decoded headers are kept per
+ * distinct header, and tokens whose signature was verified are remembered (by hash) until they expire, at most
+ * {@code cacheSize} of them, so a token presented again only has its claims re-checked. Nothing on the validation
+ * path takes a lock.
+ */
+public class AccessTokenValidator {
+    private static final int MAX_HEADERS = 16;
+
+    private final String issuer;
+    private final String audience;
+    private final JwksCache keys;
+    private final Clock clock;
+    private final long clockToleranceSeconds;
+    private final Set<JwsAlgorithm> algorithms;
+    private final boolean requireType;
+    private final Duration cacheTtl;
+    private final BoundedCache<String, AccessToken> verified;
+
+    private volatile Header[] headers = new Header[0];
+
+    /**
+     * @param audience    the identifier of this resource server, which must be among the token's {@code aud}
+     * @param requireType whether to insist on the {@code at+jwt} type, as RFC 9068 does; defaults to true
+     * @param cacheSize   verified tokens to remember; defaults to 10000, 0 disables the cache
+     * @param cacheTtl    upper bound on how long a verified token is remembered; defaults to 5 minutes
+     */
+    @Builder
+    private AccessTokenValidator(String issuer, String audience, JwksCache keys, Clock clock, Duration clockTolerance,
+            Set<JwsAlgorithm> algorithms, Boolean requireType, Integer cacheSize, Duration cacheTtl) {
+        if (issuer == null) {
+            throw new NullPointerException("issuer");
+        }
+        if (audience == null) {
+            throw new NullPointerException("audience");
+        }
+        if (keys == null) {
+            throw new NullPointerException("keys");
+        }
+        this.issuer = issuer;
+        this.audience = audience;
+        this.keys = keys;
+        this.clock = clock == null ? Clock.systemUTC() : clock;
+        this.clockToleranceSeconds = clockTolerance == null ? 0 : clockTolerance.toSeconds();
+        this.algorithms = algorithms == null || algorithms.isEmpty()
+                ? EnumSet.allOf(JwsAlgorithm.class)
+                : EnumSet.copyOf(algorithms);
+        this.requireType = requireType == null || requireType;
+        this.cacheTtl = cacheTtl == null ? Duration.ofMinutes(5) : cacheTtl;
+        var size = cacheSize == null ? 10_000 : cacheSize;
+        this.verified = size == 0 ? null
+                : BoundedCache.<String, AccessToken>builder().maximumSize(size).clock(this.clock).build();
+    }
+
+    /**
+     * @param requiredScopes scopes that must all be granted to the token
+     * @return the validated token; completes immediately unless the signing key has to be fetched
+     */
+    public CompletableFuture<AccessToken> validate(String token, String... requiredScopes) {
+        try {
+            final var cacheKey = verified == null ? null : Hashing.sha256(token);
+            if (cacheKey != null) {
+                var cached = verified.getIfPresent(cacheKey);
+                if (cached != null) {
+                    return CompletableFuture.completedFuture(checkTime(checkScopes(cached, requiredScopes)));
+                }
+            }
+
+            final var firstDot = token.indexOf('.');
+            final var secondDot = firstDot < 0 ? -1 : token.indexOf('.', firstDot + 1);
+            if (secondDot < 0 || token.indexOf('.', secondDot + 1) >= 0) {
+                throw new RelyingPartyException("JWT must consist of three parts");
+            }
+
+            final var header = header(token, firstDot);
+            final var jwk = keys.find(header.kid(), header.algorithm());
+            if (jwk != null) {
+                return CompletableFuture.completedFuture(
+                        verify(token, firstDot, secondDot, header, jwk, cacheKey, requiredScopes));
+            }
+            return keys.get(header.kid(), header.algorithm())
+                    .thenApply(fetched -> verify(token, firstDot, secondDot, header, fetched, cacheKey,
+                            requiredScopes));
+        } catch (RelyingPartyException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Header header(String token, int firstDot) {
+        for (var header : headers) {
+            if (header.encoded().length() == firstDot && token.startsWith(header.encoded())) {
+                return header;
+            }
+        }
+
+        final Jws.Header parsed;
+        try {
+            parsed = Jws.parseHeader(Base64Url.decode(token, 0, firstDot));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new RelyingPartyException("unable to decode JWT", e);
+        }
+        var algorithm = JwsAlgorithm.of(parsed.alg());
+        if (algorithm == null || !algorithms.contains(algorithm)) {
+            throw new RelyingPartyException(
+                    String.format("unexpected JWT alg received; actual: [%s]", parsed.alg()));
+        }
+        if (requireType && !"at+jwt".equalsIgnoreCase(parsed.typ())
+                && !"application/at+jwt".equalsIgnoreCase(parsed.typ())) {
+            throw new RelyingPartyException(String.format("unexpected JWT typ; expected: [at+jwt] actual: [%s]",
+                    parsed.typ()));
+        }
+
+        var header = new Header(token.substring(0, firstDot), algorithm, parsed.kid());
+        var current = headers;
+        if (current.length < MAX_HEADERS) {
+            // Losing an update to a concurrent one only costs a decode later
+            var next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = header;
+            headers = next;
+        }
+        return header;
+    }
+
+    private AccessToken verify(String token, int firstDot, int secondDot, Header header, Jwk jwk, String cacheKey,
+            String[] requiredScopes) {
+        final byte[] payload;
+        final byte[] signature;
+        try {
+            payload = Base64Url.decode(token, firstDot + 1, secondDot);
+            signature = Base64Url.decode(token, secondDot + 1, token.length());
+        } catch (IllegalArgumentException e) {
+            throw new RelyingPartyException("unable to decode JWT", e);
+        }
+        var signingInput = token.getBytes(StandardCharsets.US_ASCII);
+        if (!header.algorithm().verify(jwk.key(), signingInput, 0, secondDot, signature)) {
+            throw new RelyingPartyException("failed to validate JWT signature");
+        }
+
+        var accessToken = parse(payload);
+        if (!issuer.equals(accessToken.getIssuer())) {
+            throw new RelyingPartyException(String.format("unexpected iss value; expected: [%s] actual: [%s]",
+                    issuer, accessToken.getIssuer()));
+        }
+        if (!accessToken.getAudience().contains(audience)) {
+            throw new RelyingPartyException(String.format("aud mismatch; expected: [%s] actual: [%s]",
+                    audience, accessToken.getAudience()));
+        }
+        checkTime(accessToken);
+
+        if (cacheKey != null) {
+            var remaining = Duration.ofSeconds(accessToken.getExp() - clock.instant().getEpochSecond());
+            verified.put(cacheKey, accessToken, remaining.compareTo(cacheTtl) < 0 ? remaining : cacheTtl);
+        }
+        return checkScopes(accessToken, requiredScopes);
+    }
+
+    private AccessToken checkTime(AccessToken token) {
+        final var now = clock.instant().getEpochSecond();
+        if (now - clockToleranceSeconds >= token.getExp()) {
+            throw new RelyingPartyException(String.format("JWT expired; now: [%d] exp: [%d]", now, token.getExp()));
+        }
+        if (token.getNbf() != Long.MIN_VALUE && now + clockToleranceSeconds < token.getNbf()) {
+            throw new RelyingPartyException(String.format("JWT not active yet; now: [%d] nbf: [%d]", now,
+                    token.getNbf()));
+        }
+        return token;
+    }
+
+    private static AccessToken checkScopes(AccessToken token, String[] requiredScopes) {
+        for (var scope : requiredScopes) {
+            if (!token.hasScope(scope)) {
+                throw new RelyingPartyException(String.format("insufficient scope; required: [%s] actual: [%s]",
+                        scope, token.getScope()));
+            }
+        }
+        return token;
+    }
+
+    /**
+     * Reads the registered claims in one pass, skipping all others.
+     */
+    private static AccessToken parse(byte[] payload) {
+        String iss = null, sub = null, clientId = null, scope = null, jti = null;
+        List<String> aud = List.of();
+        long exp = Long.MIN_VALUE, iat = Long.MIN_VALUE, nbf = Long.MIN_VALUE;
+        try (JsonParser parser = JsonCodec.mapper().createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new RelyingPartyException("JWT claims must be a JSON object");
+            }
+            String name;
+            while ((name = parser.nextFieldName()) != null) {
+                var token = parser.nextToken();
+                switch (name) {
+                    case "iss" -> iss = text(parser, token);
+                    case "sub" -> sub = text(parser, token);
+                    case "client_id" -> clientId = text(parser, token);
+                    case "scope" -> scope = text(parser, token);
+                    case "jti" -> jti = text(parser, token);
+                    case "exp" -> exp = numericDate(parser, token, name);
+                    case "iat" -> iat = numericDate(parser, token, name);
+                    case "nbf" -> nbf = numericDate(parser, token, name);
+                    case "aud" -> aud = audience(parser, token);
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new RelyingPartyException("unable to deserialize JWT claims", e);
+        }
+
+        if (exp == Long.MIN_VALUE) {
+            throw new RelyingPartyException("JWT exp claim must be a JSON numeric value");
+        }
+        if (sub == null) {
+            throw new RelyingPartyException("missing required JWT property sub");
+        }
+        return new AccessToken(iss, sub, clientId, scope, aud, jti, exp, iat, nbf, payload);
+    }
+
+    private static String text(JsonParser parser, JsonToken token) throws IOException {
+        if (token != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getText();
+    }
+
+    private static long numericDate(JsonParser parser, JsonToken token, String name) throws IOException {
+        if (!token.isNumeric()) {
+            throw new RelyingPartyException(String.format("JWT %s claim must be a JSON numeric value", name));
+        }
+        return parser.getValueAsLong();
+    }
+
+    private static List<String> audience(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_STRING) {
+            return List.of(parser.getText());
+        }
+        var audience = new ArrayList<String>(2);
+        if (token == JsonToken.START_ARRAY) {
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == JsonToken.VALUE_STRING) {
+                    audience.add(parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } else {
+            parser.skipChildren();
+        }
+        return audience;
+    }
+
+    private record Header(String encoded, JwsAlgorithm algorithm, String kid) {
+    }
+}
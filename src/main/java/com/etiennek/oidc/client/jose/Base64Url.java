@@ -0,0 +1,47 @@
+package com.etiennek.oidc.client.jose;
+
+import java.util.Arrays;
+
+/**
+ * Unpadded base64url decoding of part of a string, without copying it out first as {@link java.util.Base64} needs.
+ */
+final class Base64Url {
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        var alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (var i = 0; i < alphabet.length(); i++) {
+            VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private Base64Url() {
+    }
+
+    static byte[] decode(String s, int from, int to) {
+        final var length = to - from;
+        if (length % 4 == 1) {
+            throw new IllegalArgumentException("invalid base64url length");
+        }
+
+        final var out = new byte[length * 3 / 4];
+        var buffer = 0;
+        var bits = 0;
+        var o = 0;
+        for (var i = from; i < to; i++) {
+            final var c = s.charAt(i);
+            final var value = c < 128 ? VALUES[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("invalid base64url character");
+            }
+            buffer = buffer << 6 | value;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                out[o++] = (byte) (buffer >> bits);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,158 @@
+package com.etiennek.oidc.client.jose;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.etiennek.oidc.client.utils.JsonCodec;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Validates ID Tokens as described in OpenID Connect Core 1.0, section 3.1.3.7: the signature against the issuer's
+ * JWKS and the {@code iss}, {@code aud}, {@code azp}, {@code exp}, {@code iat}, {@code nbf} and {@code nonce} claims.
+ */
+public class IdTokenValidator {
+    private static final ObjectReader CLAIMS_READER = JsonCodec.readerFor(JsonCodec.MAP_TYPE);
+
+    private final String issuer;
+    private final String clientId;
+    @Getter
+    private final JwksCache keys;
+    private final Clock clock;
+    private final long clockToleranceSeconds;
+    private final Set<JwsAlgorithm> algorithms;
+
+    @Builder
+    private IdTokenValidator(String issuer, String clientId, JwksCache keys, Clock clock, Duration clockTolerance,
+            Set<JwsAlgorithm> algorithms) {
+        if (issuer == null) {
+            throw new NullPointerException("issuer");
+        }
+        if (clientId == null) {
+            throw new NullPointerException("clientId");
+        }
+        if (keys == null) {
+            throw new NullPointerException("keys");
+        }
+        this.issuer = issuer;
+        this.clientId = clientId;
+        this.keys = keys;
+        this.clock = clock == null ? Clock.systemUTC() : clock;
+        this.clockToleranceSeconds = clockTolerance == null ? 0 : clockTolerance.toSeconds();
+        this.algorithms = algorithms == null || algorithms.isEmpty()
+                ? EnumSet.allOf(JwsAlgorithm.class)
+                : EnumSet.copyOf(algorithms);
+    }
+
+    /**
+     * @return the validated claims of the ID Token
+     */
+    public CompletableFuture<Map<String, Object>> validate(String idToken, String nonce) {
+        return validate(idToken, nonce, true);
+    }
+
+    /**
+     * Validates an ID Token without a {@code nonce} check, e.g. one returned from a refresh_token grant.
+     */
+    public CompletableFuture<Map<String, Object>> validate(String idToken) {
+        return validate(idToken, null, false);
+    }
+
+    private CompletableFuture<Map<String, Object>> validate(String idToken, String nonce, boolean checkNonce) {
+        final Jws jws;
+        final JwsAlgorithm algorithm;
+        try {
+            jws = Jws.parse(idToken);
+            algorithm = JwsAlgorithm.of(jws.header().alg());
+            if (algorithm == null || !algorithms.contains(algorithm)) {
+                throw new RelyingPartyException(
+                        String.format("unexpected JWT alg received; actual: [%s]", jws.header().alg()));
+            }
+
+            var jwk = keys.find(jws.header().kid(), algorithm);
+            if (jwk != null) {
+                return CompletableFuture.completedFuture(verify(jws, algorithm, jwk, nonce, checkNonce));
+            }
+        } catch (RelyingPartyException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return keys.get(jws.header().kid(), algorithm)
+                .thenApply(jwk -> verify(jws, algorithm, jwk, nonce, checkNonce));
+    }
+
+    private Map<String, Object> verify(Jws jws, JwsAlgorithm algorithm, Jwk jwk, String nonce, boolean checkNonce) {
+        if (!algorithm.verify(jwk.key(), jws.signingInput(), jws.signature())) {
+            throw new RelyingPartyException("failed to validate JWT signature");
+        }
+
+        final Map<String, Object> claims;
+        try {
+            claims = CLAIMS_READER.readValue(jws.payload());
+        } catch (IOException e) {
+            throw new RelyingPartyException("unable to deserialize JWT claims", e);
+        }
+
+        if (!issuer.equals(claims.get("iss"))) {
+            throw new RelyingPartyException(String.format("unexpected iss value; expected: [%s] actual: [%s]",
+                    issuer, claims.get("iss")));
+        }
+
+        if (claims.get("sub") == null) {
+            throw new RelyingPartyException("missing required JWT property sub");
+        }
+
+        var aud = claims.get("aud");
+        if (aud instanceof List<?> audiences) {
+            if (!audiences.contains(clientId)) {
+                throw new RelyingPartyException(String.format(
+                        "aud is missing the client_id; expected: [%s] actual: [%s]", clientId, aud));
+            }
+            if (audiences.size() > 1 && claims.containsKey("azp") && !clientId.equals(claims.get("azp"))) {
+                throw new RelyingPartyException(String.format("azp mismatch; expected: [%s] actual: [%s]",
+                        clientId, claims.get("azp")));
+            }
+        } else if (!clientId.equals(aud)) {
+            throw new RelyingPartyException(String.format("aud mismatch; expected: [%s] actual: [%s]",
+                    clientId, aud));
+        }
+
+        final var now = clock.instant().getEpochSecond();
+        if (now - clockToleranceSeconds >= numericDate(claims, "exp", true)) {
+            throw new RelyingPartyException(String.format("JWT expired; now: [%d] exp: [%s]", now, claims.get("exp")));
+        }
+        numericDate(claims, "iat", true);
+        var nbf = numericDate(claims, "nbf", false);
+        if (nbf != Long.MIN_VALUE && now + clockToleranceSeconds < nbf) {
+            throw new RelyingPartyException(String.format("JWT not active yet; now: [%d] nbf: [%d]", now, nbf));
+        }
+
+        if (checkNonce && !Objects.equals(nonce, claims.get("nonce"))) {
+            throw new RelyingPartyException(String.format("nonce mismatch; expected: [%s] actual: [%s]",
+                    nonce, claims.get("nonce")));
+        }
+
+        return claims;
+    }
+
+    private static long numericDate(Map<String, Object> claims, String name, boolean required) {
+        var value = claims.get(name);
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value != null || required) {
+            throw new RelyingPartyException(String.format("JWT %s claim must be a JSON numeric value", name));
+        }
+        return Long.MIN_VALUE;
+    }
+}
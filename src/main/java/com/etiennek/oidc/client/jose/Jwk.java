@@ -0,0 +1,73 @@
+package com.etiennek.oidc.client.jose;
+
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A public signing key from a JWK Set, parsed once into a {@link PublicKey}.
+ */
+public record Jwk(String kid, String alg, PublicKey key) {
+
+    /**
+     * @return the parsed key or {@code null} when the JWK is not a supported public signing key
+     */
+    public static Jwk parse(JsonNode node) {
+        var use = node.path("use").asText(null);
+        if (use != null && !use.equals("sig")) {
+            return null;
+        }
+
+        try {
+            var key = switch (node.path("kty").asText("")) {
+                case "RSA" -> rsa(node);
+                case "EC" -> ec(node);
+                default -> null;
+            };
+            if (key == null) {
+                return null;
+            }
+            return new Jwk(node.path("kid").asText(null), node.path("alg").asText(null), key);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public boolean matches(JwsAlgorithm algorithm) {
+        return (alg == null || alg.equals(algorithm.name())) && algorithm.accepts(key);
+    }
+
+    private static PublicKey rsa(JsonNode node) throws GeneralSecurityException {
+        var spec = new RSAPublicKeySpec(integer(node, "n"), integer(node, "e"));
+        return KeyFactory.getInstance("RSA").generatePublic(spec);
+    }
+
+    private static PublicKey ec(JsonNode node) throws GeneralSecurityException {
+        if (!"P-256".equals(node.path("crv").asText())) {
+            return null;
+        }
+        var parameters = AlgorithmParameters.getInstance("EC");
+        parameters.init(new ECGenParameterSpec("secp256r1"));
+        var spec = new ECPublicKeySpec(new ECPoint(integer(node, "x"), integer(node, "y")),
+                parameters.getParameterSpec(ECParameterSpec.class));
+        return KeyFactory.getInstance("EC").generatePublic(spec);
+    }
+
+    private static BigInteger integer(JsonNode node, String member) {
+        var value = node.path(member).asText(null);
+        if (value == null) {
+            throw new IllegalArgumentException(member);
+        }
+        return new BigInteger(1, Base64.getUrlDecoder().decode(value));
+    }
+}
@@ -0,0 +1,182 @@
+package com.etiennek.oidc.client.jose;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.etiennek.oidc.client.exceptions.IdpException;
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.etiennek.oidc.client.http.HttpTransport;
+import com.etiennek.oidc.client.metrics.Endpoint;
+import com.etiennek.oidc.client.metrics.Instrumentation;
+import com.etiennek.oidc.client.utils.JsonCodec;
+import com.etiennek.oidc.client.utils.SingleFlight;
+import com.etiennek.oidc.client.utils.Constants.ContentTypes;
+import com.etiennek.oidc.client.utils.Constants.HttpHeaders;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Caches the parsed signing keys of an issuer's JWK Set.
+ * <p>
+ * Lookups of known keys never wait on I/O. A lookup for an unknown {@code kid} triggers a refetch of the JWK Set,
+ * shared by all concurrent callers, and at most once per {@code minRefreshInterval}, whether or not the previous
+ * attempt succeeded.
+ */
+public class JwksCache {
+    private static final ObjectReader TREE_READER = JsonCodec.mapper().reader();
+
+    @Getter
+    private final URI jwksUri;
+    private final HttpTransport transport;
+    private final Instrumentation instrumentation;
+    private final Duration minRefreshInterval;
+    private final Clock clock;
+
+    private final SingleFlight<URI, Keys> refreshes = new SingleFlight<>();
+    private volatile Keys keys;
+    private volatile long lastRefreshMillis = Long.MIN_VALUE;
+    private volatile CompletableFuture<Keys> lastFetch;
+
+    @Builder
+    private JwksCache(URI jwksUri, HttpTransport transport, Instrumentation instrumentation,
+            Duration minRefreshInterval, Clock clock) {
+        if (jwksUri == null) {
+            throw new NullPointerException("jwksUri");
+        }
+        if (transport == null) {
+            throw new NullPointerException("transport");
+        }
+        this.jwksUri = jwksUri;
+        this.transport = transport;
+        this.instrumentation = instrumentation == null ? Instrumentation.NOOP : instrumentation;
+        this.minRefreshInterval = minRefreshInterval == null ? Duration.ofSeconds(30) : minRefreshInterval;
+        this.clock = clock == null ? Clock.systemUTC() : clock;
+    }
+
+    /**
+     * @return the cached key for {@code kid} usable with {@code algorithm}, or {@code null} when it isn't cached
+     */
+    public Jwk find(String kid, JwsAlgorithm algorithm) {
+        var snapshot = keys;
+        return snapshot == null ? null : snapshot.select(kid, algorithm);
+    }
+
+    public CompletableFuture<Jwk> get(String kid, JwsAlgorithm algorithm) {
+        var jwk = find(kid, algorithm);
+        if (jwk != null) {
+            return CompletableFuture.completedFuture(jwk);
+        }
+
+        if (!refreshAllowed()) {
+            var last = lastFetch;
+            if (last.isDone()) {
+                return CompletableFuture.failedFuture(keys != null ? noKey(kid) : unavailable(last));
+            }
+            // Still fetching, so wait for it along with everyone else
+        }
+
+        return refresh().thenApply(refreshed -> {
+            var found = refreshed.select(kid, algorithm);
+            if (found == null) {
+                throw noKey(kid);
+            }
+            return found;
+        });
+    }
+
+    public CompletableFuture<Keys> refresh() {
+        return refreshes.execute(jwksUri, this::fetch);
+    }
+
+    private boolean refreshAllowed() {
+        var last = lastRefreshMillis;
+        return last == Long.MIN_VALUE || clock.millis() - last >= minRefreshInterval.toMillis();
+    }
+
+    private CompletableFuture<Keys> fetch() {
+        final var startedAt = clock.millis();
+        var request = transport.newRequest(jwksUri)
+                .GET()
+                .header(HttpHeaders.ACCEPT, ContentTypes.APPLICATION_JSON)
+                .build();
+
+        var fetch = transport.exchange(instrumentation, Endpoint.JWKS, request, response -> {
+            if (response.statusCode() != 200) {
+                throw new IdpException(String.format(
+                        "unexpected status [%d] from JWKS endpoint [%s]", response.statusCode(), jwksUri));
+            }
+
+            JsonNode jwks;
+            try {
+                jwks = TREE_READER.readTree(response.body());
+            } catch (IOException e) {
+                throw new RelyingPartyException("unable to deserialize JSON retrieved from JWKS endpoint", e);
+            }
+
+            var parsed = new ArrayList<Jwk>();
+            for (var node : jwks.path("keys")) {
+                var jwk = Jwk.parse(node);
+                if (jwk != null) {
+                    parsed.add(jwk);
+                }
+            }
+            var refreshed = Keys.of(parsed);
+            keys = refreshed;
+            return refreshed;
+        });
+        // Published before the attempt's time, so whoever sees the attempt also sees its future
+        lastFetch = fetch;
+        lastRefreshMillis = startedAt;
+        return fetch;
+    }
+
+    private RelyingPartyException unavailable(CompletableFuture<Keys> failed) {
+        var cause = failed.isCompletedExceptionally() ? failed.exceptionNow() : null;
+        return new RelyingPartyException(String.format("JWKS of [%s] unavailable; retrying at most once per %s",
+                jwksUri, minRefreshInterval), cause);
+    }
+
+    private static RelyingPartyException noKey(String kid) {
+        return new RelyingPartyException(String.format("no matching key found in JWKS; kid: [%s]", kid));
+    }
+
+    public record Keys(Map<String, Jwk> byKid, List<Jwk> all) {
+        static Keys of(List<Jwk> keys) {
+            var byKid = new HashMap<String, Jwk>();
+            for (var key : keys) {
+                if (key.kid() != null) {
+                    byKid.putIfAbsent(key.kid(), key);
+                }
+            }
+            return new Keys(Map.copyOf(byKid), List.copyOf(keys));
+        }
+
+        Jwk select(String kid, JwsAlgorithm algorithm) {
+            if (kid != null) {
+                var jwk = byKid.get(kid);
+                return jwk != null && jwk.matches(algorithm) ? jwk : null;
+            }
+
+            Jwk candidate = null;
+            for (var jwk : all) {
+                if (jwk.matches(algorithm)) {
+                    if (candidate != null) {
+                        return null;
+                    }
+                    candidate = jwk;
+                }
+            }
+            return candidate;
+        }
+    }
+}
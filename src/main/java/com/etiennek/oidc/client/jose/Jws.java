@@ -0,0 +1,65 @@
+package com.etiennek.oidc.client.jose;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.etiennek.oidc.client.utils.JsonCodec;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * A compact-serialized JWS split into its parts. The payload is decoded but not interpreted.
+ */
+public record Jws(Header header, byte[] payload, byte[] signingInput, byte[] signature) {
+    private static final Base64.Decoder BASE64URL = Base64.getUrlDecoder();
+
+    public record Header(String alg, String kid, String typ) {
+    }
+
+    public static Jws parse(String compact) {
+        if (compact == null) {
+            throw new NullPointerException("compact");
+        }
+
+        final var firstDot = compact.indexOf('.');
+        final var secondDot = firstDot < 0 ? -1 : compact.indexOf('.', firstDot + 1);
+        if (secondDot < 0 || compact.indexOf('.', secondDot + 1) >= 0) {
+            throw new RelyingPartyException("JWT must consist of three parts");
+        }
+
+        try {
+            var header = parseHeader(decode(compact, 0, firstDot));
+            var payload = decode(compact, firstDot + 1, secondDot);
+            var signature = decode(compact, secondDot + 1, compact.length());
+            var signingInput = compact.substring(0, secondDot).getBytes(StandardCharsets.US_ASCII);
+            return new Jws(header, payload, signingInput, signature);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new RelyingPartyException("unable to decode JWT", e);
+        }
+    }
+
+    static byte[] decode(String compact, int from, int to) {
+        return BASE64URL.decode(compact.substring(from, to));
+    }
+
+    static Header parseHeader(byte[] json) throws IOException {
+        String alg = null, kid = null, typ = null;
+        try (var parser = JsonCodec.mapper().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new RelyingPartyException("JWT header must be a JSON object");
+            }
+            String name;
+            while ((name = parser.nextFieldName()) != null) {
+                var token = parser.nextToken();
+                switch (name) {
+                    case "alg" -> alg = token == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    case "kid" -> kid = token == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    case "typ" -> typ = token == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return new Header(alg, kid, typ);
+    }
+}
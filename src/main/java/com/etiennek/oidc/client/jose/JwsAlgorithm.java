@@ -0,0 +1,108 @@
+package com.etiennek.oidc.client.jose;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+
+import lombok.Getter;
+
+/**
+ * The JWS algorithms accepted for signatures issued by an IdP, and used for client assertions. {@link Signature}
+ * instances are expensive to look up, so each algorithm keeps a lock-free pool of them; unlike a {@code ThreadLocal}
+ * this also works for virtual threads.
+ */
+public enum JwsAlgorithm {
+    RS256("RSA", "SHA256withRSA", null),
+    PS256("RSA", "RSASSA-PSS", new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1)),
+    ES256("EC", "SHA256withECDSAinP1363Format", null);
+
+    @Getter
+    private final String keyType;
+    private final String jcaName;
+    private final PSSParameterSpec parameters;
+    private final ConcurrentLinkedQueue<Signature> pool = new ConcurrentLinkedQueue<>();
+
+    JwsAlgorithm(String keyType, String jcaName, PSSParameterSpec parameters) {
+        this.keyType = keyType;
+        this.jcaName = jcaName;
+        this.parameters = parameters;
+    }
+
+    public static JwsAlgorithm of(String name) {
+        if (name == null)
+            return null;
+        return switch (name) {
+            case "RS256" -> RS256;
+            case "PS256" -> PS256;
+            case "ES256" -> ES256;
+            default -> null;
+        };
+    }
+
+    public boolean accepts(PublicKey key) {
+        return switch (this) {
+            case RS256, PS256 -> key instanceof RSAPublicKey;
+            case ES256 -> key instanceof ECPublicKey ec && ec.getParams().getCurve().getField().getFieldSize() == 256;
+        };
+    }
+
+    public boolean verify(PublicKey key, byte[] signingInput, byte[] signature) {
+        return verify(key, signingInput, 0, signingInput.length, signature);
+    }
+
+    public boolean verify(PublicKey key, byte[] signingInput, int offset, int length, byte[] signature) {
+        if (!accepts(key)) {
+            return false;
+        }
+
+        var sig = pool.poll();
+        try {
+            if (sig == null) {
+                sig = newSignature();
+            }
+            sig.initVerify(key);
+            sig.update(signingInput, offset, length);
+            return sig.verify(signature);
+        } catch (GeneralSecurityException e) {
+            return false;
+        } finally {
+            if (sig != null) {
+                pool.offer(sig);
+            }
+        }
+    }
+
+    public byte[] sign(PrivateKey key, byte[] signingInput) {
+        var sig = pool.poll();
+        try {
+            if (sig == null) {
+                sig = newSignature();
+            }
+            sig.initSign(key);
+            sig.update(signingInput);
+            return sig.sign();
+        } catch (GeneralSecurityException e) {
+            throw new RelyingPartyException("unable to sign JWT", e);
+        } finally {
+            if (sig != null) {
+                pool.offer(sig);
+            }
+        }
+    }
+
+    Signature newSignature() throws GeneralSecurityException {
+        var sig = Signature.getInstance(jcaName);
+        if (parameters != null) {
+            sig.setParameter(parameters);
+        }
+        return sig;
+    }
+}
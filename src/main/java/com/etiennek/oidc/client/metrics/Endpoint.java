@@ -0,0 +1,30 @@
+package com.etiennek.oidc.client.metrics;
+
+/**
+ * The IdP endpoints the client calls.
+ */
+public enum Endpoint {
+    DISCOVERY(true),
+    JWKS(true),
+    /** Not idempotent: an authorization code or rotated refresh token can only be redeemed once */
+    TOKEN(false),
+    USERINFO(true),
+    /**
+     * Only reads the token's state, but authenticates the client: resending the request would replay a single-use
+     * client assertion
+     */
+    INTROSPECTION(false);
+
+    private final boolean idempotent;
+
+    Endpoint(boolean idempotent) {
+        this.idempotent = idempotent;
+    }
+
+    /**
+     * @return whether a request to this endpoint may safely be retried or hedged
+     */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+}
@@ -0,0 +1,108 @@
+package com.etiennek.oidc.client.metrics;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link Instrumentation} that keeps counters, timers and gauges in memory. Useful in tests, and as a registry
+ * that is periodically read and exported to a metrics backend.
+ */
+public class InMemoryInstrumentation implements Instrumentation {
+    private final ConcurrentHashMap<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public record TimerSnapshot(long count, long totalNanos, long maxNanos) {
+        public double meanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+    }
+
+    private static final class Timer {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private void record(long nanos) {
+            count.increment();
+            total.add(nanos);
+            max.accumulate(nanos);
+        }
+
+        private TimerSnapshot snapshot() {
+            return new TimerSnapshot(count.sum(), total.sum(), max.get());
+        }
+    }
+
+    @Override
+    public void started(Endpoint endpoint, URI uri) {
+        inFlight.computeIfAbsent(gaugeKey(endpoint, uri), k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    @Override
+    public void finished(Endpoint endpoint, URI uri) {
+        inFlight.computeIfAbsent(gaugeKey(endpoint, uri), k -> new AtomicInteger()).decrementAndGet();
+    }
+
+    @Override
+    public void timer(Endpoint endpoint, Phase phase, long nanos) {
+        timers.computeIfAbsent(endpoint + "." + phase, k -> new Timer()).record(nanos);
+    }
+
+    @Override
+    public void outcome(Endpoint endpoint, Outcome outcome, String errorCode) {
+        outcomes.computeIfAbsent(outcomeKey(endpoint, outcome, errorCode), k -> new LongAdder()).increment();
+    }
+
+    public long count(Endpoint endpoint, Outcome outcome, String errorCode) {
+        var counter = outcomes.get(outcomeKey(endpoint, outcome, errorCode));
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public long count(Endpoint endpoint, Outcome outcome) {
+        var prefix = endpoint + "." + outcome + ".";
+        return outcomes.entrySet().stream()
+                .filter(e -> e.getKey().startsWith(prefix))
+                .mapToLong(e -> e.getValue().sum())
+                .sum();
+    }
+
+    public TimerSnapshot timer(Endpoint endpoint, Phase phase) {
+        var timer = timers.get(endpoint + "." + phase);
+        return timer == null ? new TimerSnapshot(0, 0, 0) : timer.snapshot();
+    }
+
+    public int inFlight(Endpoint endpoint, URI uri) {
+        var gauge = inFlight.get(gaugeKey(endpoint, uri));
+        return gauge == null ? 0 : gauge.get();
+    }
+
+    /**
+     * @return all counters, timers (count, total and max nanos) and gauges by name
+     */
+    public Map<String, Number> snapshot() {
+        var snapshot = new TreeMap<String, Number>();
+        outcomes.forEach((k, v) -> snapshot.put("outcome." + k, v.sum()));
+        timers.forEach((k, v) -> {
+            var s = v.snapshot();
+            snapshot.put("timer." + k + ".count", s.count());
+            snapshot.put("timer." + k + ".total", s.totalNanos());
+            snapshot.put("timer." + k + ".max", s.maxNanos());
+        });
+        inFlight.forEach((k, v) -> snapshot.put("inflight." + k, v.get()));
+        return snapshot;
+    }
+
+    private static String outcomeKey(Endpoint endpoint, Outcome outcome, String errorCode) {
+        return endpoint + "." + outcome + "." + (errorCode == null ? "none" : errorCode);
+    }
+
+    private static String gaugeKey(Endpoint endpoint, URI uri) {
+        return endpoint + "." + uri.getScheme() + "://" + uri.getRawAuthority() + uri.getRawPath();
+    }
+}
@@ -0,0 +1,37 @@
+package com.etiennek.oidc.client.metrics;
+
+import java.net.URI;
+
+/**
+ * Receives timings and outcomes of every call the client makes to an IdP. All methods are optional; when the
+ * {@link #NOOP} instance is used the client skips taking timestamps entirely.
+ * <p>
+ * Implementations are called from HTTP client threads, or the calling thread for a {@code SyncClient}, and must be
+ * thread-safe and non-blocking.
+ */
+public interface Instrumentation {
+    Instrumentation NOOP = new Instrumentation() {
+    };
+
+    /**
+     * A request to {@code uri} was started; for in-flight gauges.
+     */
+    default void started(Endpoint endpoint, URI uri) {
+    }
+
+    /**
+     * A request to {@code uri} completed, successfully or not; for in-flight gauges.
+     */
+    default void finished(Endpoint endpoint, URI uri) {
+    }
+
+    default void timer(Endpoint endpoint, Phase phase, long nanos) {
+    }
+
+    /**
+     * @param errorCode the OAuth {@code error} returned by the IdP, the name of the transport exception, or
+     *                  {@code null}
+     */
+    default void outcome(Endpoint endpoint, Outcome outcome, String errorCode) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.etiennek.oidc.client.metrics;
+
+public enum Outcome {
+    SUCCESS,
+    /** The IdP answered with an error, see {@link com.etiennek.oidc.client.exceptions.IdpException} */
+    IDP_ERROR,
+    /**
+     * The response was rejected by the client, see {@link com.etiennek.oidc.client.exceptions.RelyingPartyException}
+     */
+    RELYING_PARTY_ERROR,
+    /** No response was received, e.g. a connect failure or timeout */
+    TRANSPORT_ERROR,
+    /**
+     * The request was never sent because the endpoint's circuit breaker is open or its bulkhead is full, see
+     * {@link com.etiennek.oidc.client.exceptions.IdpUnavailableException}
+     */
+    REJECTED
+}
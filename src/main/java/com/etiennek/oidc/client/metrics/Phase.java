@@ -0,0 +1,14 @@
+package com.etiennek.oidc.client.metrics;
+
+/**
+ * The timed phases of a call to an IdP.
+ * <p>
+ * {@link #REQUEST} spans sending the request up to receiving the complete response body, connecting included when
+ * the request needs a new connection, and {@link #PARSE} spans turning that body into the result. The JDK
+ * {@link java.net.http.HttpClient} establishes and pools connections internally and doesn't expose DNS, connect or
+ * TLS timings, so those aren't reported separately.
+ */
+public enum Phase {
+    REQUEST,
+    PARSE
+}
@@ -0,0 +1,174 @@
+package com.etiennek.oidc.client.utils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import lombok.Builder;
+
+/**
+ * A size bounded cache with per-entry expiry and TinyLFU admission.
+ * <p>
+ * Entries are evicted oldest first, but only when the entry that pushed the cache over its size was requested at
+ * least as often, according to a {@link FrequencySketch}, as the one it would replace; otherwise the newcomer is
+ * dropped. This keeps a burst of one-off keys from flushing the popular ones. Concurrent loads of the same key share
+ * a single call.
+ */
+public final class BoundedCache<K, V> {
+    private final int maximumSize;
+    private final Clock clock;
+
+    private final ConcurrentHashMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry<K, V>> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger orderSize = new AtomicInteger();
+    private final FrequencySketch sketch;
+    private final SingleFlight<K, V> loads = new SingleFlight<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Builder
+    private BoundedCache(int maximumSize, Clock clock) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.clock = clock == null ? Clock.systemUTC() : clock;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * @return the cached value, or null when absent or expired
+     */
+    public V getIfPresent(K key) {
+        sketch.increment(key);
+        var entry = entries.get(key);
+        if (entry == null || entry.expiresAt <= clock.millis()) {
+            if (entry != null) {
+                entries.remove(key, entry);
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Returns the cached value of {@code key}, or loads it. The loaded value is cached for the duration returned by
+     * {@code ttl}; zero or negative durations aren't cached. Concurrent misses for the same key share one load.
+     */
+    public CompletableFuture<V> get(K key, Supplier<? extends CompletableFuture<V>> loader,
+            Function<? super V, Duration> ttl) {
+        var value = getIfPresent(key);
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+
+        return loads.execute(key, () -> loader.get().whenComplete((loaded, error) -> {
+            if (error != null) {
+                loadFailures.increment();
+            } else if (loaded != null) {
+                put(key, loaded, ttl.apply(loaded));
+            }
+        }));
+    }
+
+    public void put(K key, V value, Duration ttl) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            return;
+        }
+
+        var entry = new Entry<>(key, value, clock.millis() + ttl.toMillis());
+        entries.put(key, entry);
+        order.add(entry);
+        if (orderSize.incrementAndGet() > 2 * maximumSize) {
+            compact();
+        }
+        if (entries.size() > maximumSize) {
+            evict(entry);
+        }
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), loadFailures.sum(), evictions.sum());
+    }
+
+    private void evict(Entry<K, V> candidate) {
+        var now = clock.millis();
+        while (entries.size() > maximumSize) {
+            var victim = order.poll();
+            if (victim == null) {
+                return;
+            }
+            orderSize.decrementAndGet();
+            if (entries.get(victim.key) != victim) {
+                continue;
+            }
+            if (victim == candidate) {
+                order.add(victim);
+                orderSize.incrementAndGet();
+                return;
+            }
+
+            if (victim.expiresAt <= now || sketch.frequency(candidate.key) >= sketch.frequency(victim.key)) {
+                if (entries.remove(victim.key, victim)) {
+                    evictions.increment();
+                }
+            } else {
+                // The victim is more popular: keep it, and drop the newcomer instead
+                order.add(victim);
+                orderSize.incrementAndGet();
+                if (entries.remove(candidate.key, candidate)) {
+                    evictions.increment();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drops queue nodes of entries that were replaced or invalidated in the meantime.
+     */
+    private void compact() {
+        var removed = 0;
+        for (var it = order.iterator(); it.hasNext();) {
+            var entry = it.next();
+            if (entries.get(entry.key) != entry) {
+                it.remove();
+                removed++;
+            }
+        }
+        orderSize.addAndGet(-removed);
+    }
+
+    public record Stats(long hits, long misses, long loadFailures, long evictions) {
+        public double hitRate() {
+            var requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+
+    private record Entry<K, V>(K key, V value, long expiresAt) {
+    }
+}
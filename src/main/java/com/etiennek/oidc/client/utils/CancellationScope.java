@@ -0,0 +1,47 @@
+package com.etiennek.oidc.client.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The futures making up one call, e.g. its request, retries and hedges, so that cancelling the call cancels whichever
+ * of them are still running. Futures registered after {@link #cancel()} are cancelled straight away.
+ */
+public final class CancellationScope {
+    private final ConcurrentLinkedQueue<CompletableFuture<?>> futures = new ConcurrentLinkedQueue<>();
+    private volatile boolean cancelled;
+
+    public <F extends CompletableFuture<?>> F register(F future) {
+        futures.add(future);
+        if (cancelled) {
+            future.cancel(true);
+        }
+        future.whenComplete((r, error) -> futures.remove(future));
+        return future;
+    }
+
+    /**
+     * Cancels this scope once {@code future} is cancelled.
+     *
+     * @return {@code future}
+     */
+    public <T> CompletableFuture<T> cancelledBy(CompletableFuture<T> future) {
+        future.whenComplete((r, error) -> {
+            if (future.isCancelled()) {
+                cancel();
+            }
+        });
+        return future;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        for (CompletableFuture<?> future; (future = futures.poll()) != null;) {
+            future.cancel(true);
+        }
+    }
+}
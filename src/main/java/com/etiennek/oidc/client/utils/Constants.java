@@ -5,6 +5,8 @@ public final class Constants {
         public static final String ACCEPT = "Accept";
         public static final String AUTHORIZATION = "Authorization";
         public static final String CONTENT_TYPE = "Content-Type";
+        public static final String CACHE_CONTROL = "Cache-Control";
+        public static final String RETRY_AFTER = "Retry-After";
     }
 
     public static final class ContentTypes {
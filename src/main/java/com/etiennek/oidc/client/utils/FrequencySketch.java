@@ -0,0 +1,71 @@
+package com.etiennek.oidc.client.utils;
+
+/**
+ * A count-min sketch estimating how often keys were seen recently, used for TinyLFU admission by
+ * {@link BoundedCache}. Counters saturate at 15 and are halved once the number of increments reaches ten times the
+ * cache size, so old popularity fades.
+ * <p>
+ * Increments aren't atomic: a lost update under contention only makes an estimate slightly low, which is cheaper
+ * than making every cache access contend on shared counters.
+ */
+final class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = { 0x97cb3127, 0xc2b2ae35, 0x85ebca6b, 0x27d4eb2f };
+
+    private final int[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+        var width = Integer.highestOneBit(Math.max(64, 4 * maximumSize) - 1) << 1;
+        this.table = new int[DEPTH * width];
+        this.mask = width - 1;
+        this.sampleSize = 10 * Math.max(16, maximumSize);
+    }
+
+    void increment(Object key) {
+        var hash = spread(key.hashCode());
+        var added = false;
+        for (var i = 0; i < DEPTH; i++) {
+            var index = index(hash, i);
+            if (table[index] < MAX_COUNT) {
+                table[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(Object key) {
+        var hash = spread(key.hashCode());
+        var frequency = MAX_COUNT;
+        for (var i = 0; i < DEPTH; i++) {
+            frequency = Math.min(frequency, table[index(hash, i)]);
+        }
+        return frequency;
+    }
+
+    private int index(int hash, int row) {
+        var h = (hash ^ SEEDS[row]) * SEEDS[row];
+        h ^= h >>> 16;
+        return row * (mask + 1) + (h & mask);
+    }
+
+    private void reset() {
+        additions = 0;
+        for (var i = 0; i < table.length; i++) {
+            table[i] >>>= 1;
+        }
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 17;
+        h *= 0xed5ad4bb;
+        h ^= h >>> 11;
+        return h;
+    }
+}
@@ -0,0 +1,33 @@
+package com.etiennek.oidc.client.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public final class Futures {
+    private Futures() {
+    }
+
+    /**
+     * Waits for {@code future} and rethrows its failure as is, rather than wrapped in a {@link CompletionException}.
+     * Waiting parks the thread, so a virtual thread releases its carrier meanwhile.
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            var cause = e.getCause();
+            if (cause instanceof RuntimeException r) {
+                throw r;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            if (cause instanceof IOException io) {
+                throw new UncheckedIOException(io);
+            }
+            throw e;
+        }
+    }
+}
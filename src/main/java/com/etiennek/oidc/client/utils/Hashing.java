@@ -0,0 +1,28 @@
+package com.etiennek.oidc.client.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+public final class Hashing {
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+
+    private Hashing() {
+    }
+
+    /**
+     * @return the base64url encoded SHA-256 digest of {@code value}, e.g. to use a token as a key without keeping it
+     */
+    public static String sha256(String value) {
+        return BASE64URL.encodeToString(sha256(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static byte[] sha256(byte[] value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
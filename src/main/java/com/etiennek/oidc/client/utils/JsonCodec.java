@@ -0,0 +1,37 @@
+package com.etiennek.oidc.client.utils;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+/**
+ * The single, shared JSON codec of the library. {@link ObjectMapper} and {@link ObjectReader} are thread-safe once
+ * configured, so readers should be created once (e.g. as static fields) and reused for every response.
+ */
+public final class JsonCodec {
+    public static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    private JsonCodec() {
+    }
+
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    public static ObjectReader readerFor(Class<?> type) {
+        return MAPPER.readerFor(type);
+    }
+
+    public static ObjectReader readerFor(TypeReference<?> type) {
+        return MAPPER.readerFor(type);
+    }
+}
@@ -5,42 +5,68 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
 
 import static com.etiennek.oidc.client.utils.UriUtils.*;
 
 public class QueryManipulator {
-    private Map<String, List<String>> query = new HashMap<>();
+    // Sorted so that toQueryString() is deterministic
+    private final TreeMap<String, List<String>> query = new TreeMap<>();
 
     public QueryManipulator() {
     }
 
     public QueryManipulator(final String queryString) {
-        if (queryString == null || queryString.trim().length() == 0) {
+        if (queryString == null) {
             return;
         }
 
-        var q = queryString.trim();
-        if (q.startsWith("?")) {
-            q = q.replaceFirst("\\?", "");
+        var start = 0;
+        var end = queryString.length();
+        while (start < end && queryString.charAt(start) <= ' ')
+            start++;
+        while (end > start && queryString.charAt(end - 1) <= ' ')
+            end--;
+        if (start < end && queryString.charAt(start) == '?')
+            start++;
+        if (isBlank(queryString, start, end)) {
+            return;
         }
 
-        if (q.trim().length() == 0) {
+        // Like String.split("&"), trailing empty pairs are dropped but leading and inner ones are kept
+        while (end > start && queryString.charAt(end - 1) == '&')
+            end--;
+        if (start == end) {
             return;
         }
 
-        final var querySplit = q.split("&");
-        for (var keyVal : querySplit) {
-            final var keyValSplit = keyVal.split("=", 2);
-            final var key = urlDecode(keyValSplit[0]);
-            final var value = keyValSplit.length == 2 ? urlDecode(keyValSplit[1]) : "";
-            add(key, value);
+        var pairStart = start;
+        while (pairStart <= end) {
+            var pairEnd = queryString.indexOf('&', pairStart);
+            if (pairEnd < 0 || pairEnd > end)
+                pairEnd = end;
+
+            var eq = queryString.indexOf('=', pairStart);
+            if (eq < 0 || eq > pairEnd) {
+                add(urlDecode(queryString.substring(pairStart, pairEnd)), "");
+            } else {
+                add(urlDecode(queryString.substring(pairStart, eq)),
+                        urlDecode(queryString.substring(eq + 1, pairEnd)));
+            }
+            pairStart = pairEnd + 1;
         }
     }
 
+    private static boolean isBlank(final String s, final int start, final int end) {
+        for (var i = start; i < end; i++) {
+            if (s.charAt(i) > ' ')
+                return false;
+        }
+        return true;
+    }
+
     public QueryManipulator(final URL fromUrl) {
         this(fromUrl.getQuery());
     }
@@ -50,10 +76,7 @@ public class QueryManipulator {
             return;
         }
 
-        if (!query.containsKey(key)) {
-            query.put(key, new ArrayList<>());
-        }
-        query.get(key).add(value);
+        query.computeIfAbsent(key, k -> new ArrayList<>(1)).add(value);
     }
 
     public void put(final String key, final String value) {
@@ -61,11 +84,16 @@ public class QueryManipulator {
             return;
         }
 
-        final var arr = new ArrayList<String>();
+        final var arr = new ArrayList<String>(1);
         arr.add(value);
         query.put(key, arr);
     }
 
+    public String getFirst(final String key) {
+        final var values = key == null ? null : query.get(key);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
     public void remove(final String key) {
         if (key == null)
             return;
@@ -73,27 +101,75 @@ public class QueryManipulator {
     }
 
     public String toQueryString() {
-        return query.entrySet().stream()
-                .sorted((a, b) -> a.getKey().compareTo(b.getKey()))
-                .map(entry -> {
-                    var key = entry.getKey();
-                    return entry.getValue().stream()
-                            .sorted((a, b) -> a.compareTo(b))
-                            .map(val -> urlEncode(key) + "=" + urlEncode(val))
-                            .collect(Collectors.joining("&"));
-                }).collect(Collectors.joining("&"));
+        final var sb = new StringBuilder();
+        appendQueryString(sb);
+        return sb.toString();
+    }
+
+    public StringBuilder appendQueryString(final StringBuilder sb) {
+        var first = true;
+        for (var entry : query.entrySet()) {
+            final var key = urlEncode(entry.getKey());
+            final var values = entry.getValue();
+            if (values.size() == 1) {
+                first = append(sb, first, key, values.get(0));
+                continue;
+            }
+
+            final var sorted = values.toArray(new String[0]);
+            Arrays.sort(sorted);
+            for (var value : sorted) {
+                first = append(sb, first, key, value);
+            }
+        }
+        return sb;
+    }
+
+    private static boolean append(final StringBuilder sb, final boolean first, final String encodedKey,
+            final String value) {
+        if (!first)
+            sb.append('&');
+        sb.append(encodedKey).append('=');
+        urlEncode(sb, value);
+        return false;
+    }
+
+    /**
+     * Compiles the current parameters, on top of {@code from} without its query string, into a template whose
+     * {@code slots} are filled in per {@link QueryTemplate#expand(String...) expansion}.
+     *
+     * @param slots names of the variable parameters, sorted
+     */
+    public QueryTemplate compile(final URL from, final String... slots) {
+        final var keys = new String[query.size()];
+        final var segments = new String[query.size()];
+        var i = 0;
+        for (var entry : query.entrySet()) {
+            final var single = new QueryManipulator();
+            single.query.put(entry.getKey(), entry.getValue());
+            keys[i] = entry.getKey();
+            segments[i++] = single.toQueryString();
+        }
+        return new QueryTemplate(baseUrl(from).toString(), keys, segments, slots.clone());
     }
 
     public URL newUrlWithReplacedQueryString(final URL from) {
         final var queryString = toQueryString();
+        final var url = baseUrl(from);
+        if (queryString == null || queryString.trim().length() == 0)
+            return url;
+        try {
+            return URI.create(url + "?" + queryString).toURL();
+        } catch (MalformedURLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static URL baseUrl(final URL from) {
         try {
-            var url = new URI(from.getProtocol(), from.getUserInfo(), from.getHost(),
+            return new URI(from.getProtocol(), from.getUserInfo(), from.getHost(),
                     from.getPort(),
                     from.getPath(), null, null).toURL();
-            if (queryString == null || queryString.trim().length() == 0)
-                return url;
-            else
-                return URI.create(url + "?" + queryString).toURL();
         } catch (URISyntaxException | MalformedURLException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,84 @@
+package com.etiennek.oidc.client.utils;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+
+import static com.etiennek.oidc.client.utils.UriUtils.*;
+
+/**
+ * A URL whose query string is fixed except for a few parameters, compiled by
+ * {@link QueryManipulator#compile(URL, String...)}. The fixed parameters are encoded once; {@link #expand(String...)}
+ * only encodes the variable ones and merges them in, producing the same sorted query string as
+ * {@link QueryManipulator#newUrlWithReplacedQueryString(URL)} would.
+ */
+public final class QueryTemplate {
+    private final String base;
+    private final String[] keys;
+    private final String[] segments;
+    private final String[] slots;
+    private final String[] encodedSlots;
+    private final int sizeHint;
+
+    QueryTemplate(String base, String[] keys, String[] segments, String[] slots) {
+        for (var i = 1; i < slots.length; i++) {
+            if (slots[i - 1].compareTo(slots[i]) >= 0) {
+                throw new IllegalArgumentException("slots must be sorted and unique");
+            }
+        }
+
+        this.base = base;
+        this.keys = keys;
+        this.segments = segments;
+        this.slots = slots;
+        this.encodedSlots = new String[slots.length];
+        var size = base.length() + 1;
+        for (var i = 0; i < slots.length; i++) {
+            encodedSlots[i] = urlEncode(slots[i]) + "=";
+            size += encodedSlots[i].length() + 48;
+        }
+        for (var segment : segments) {
+            size += segment.length() + 1;
+        }
+        this.sizeHint = size;
+    }
+
+    /**
+     * @param values the values of the slots, in the order the slots were given; null values are left out
+     */
+    public URL expand(String... values) {
+        if (values.length != slots.length) {
+            throw new IllegalArgumentException(String.format("expected %d values", slots.length));
+        }
+
+        final var sb = new StringBuilder(sizeHint).append(base);
+        var first = true;
+        var i = 0;
+        var j = 0;
+        while (i < keys.length || j < slots.length) {
+            if (j < slots.length && values[j] == null) {
+                j++;
+                continue;
+            }
+
+            sb.append(first ? '?' : '&');
+            first = false;
+            final var cmp = i == keys.length ? 1 : j == slots.length ? -1 : keys[i].compareTo(slots[j]);
+            if (cmp < 0) {
+                sb.append(segments[i++]);
+            } else {
+                // A variable parameter replaces a fixed one of the same name
+                if (cmp == 0)
+                    i++;
+                urlEncode(sb.append(encodedSlots[j]), values[j]);
+                j++;
+            }
+        }
+
+        try {
+            return URI.create(sb.toString()).toURL();
+        } catch (MalformedURLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
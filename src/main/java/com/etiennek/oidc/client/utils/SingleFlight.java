@@ -0,0 +1,88 @@
+package com.etiennek.oidc.client.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into a single in-flight call whose result is shared by every caller.
+ * <p>
+ * Each caller gets its own future, so cancelling it only detaches that caller. Once every caller has cancelled, the
+ * call itself is cancelled, and a later caller starts a new one.
+ */
+public final class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, Flight> inFlight = new ConcurrentHashMap<>();
+
+    public CompletableFuture<V> execute(K key, Supplier<? extends CompletableFuture<V>> call) {
+        while (true) {
+            var flight = new Flight(key);
+            var existing = inFlight.putIfAbsent(key, flight);
+            if (existing != null) {
+                if (existing.join()) {
+                    return existing.caller();
+                }
+                // Every caller of that one cancelled; don't let a new caller share its fate
+                inFlight.remove(key, existing);
+                continue;
+            }
+
+            var caller = flight.caller();
+            try {
+                flight.call = call.get();
+                flight.call.whenComplete((value, error) -> {
+                    inFlight.remove(key, flight);
+                    if (error != null)
+                        flight.promise.completeExceptionally(error);
+                    else
+                        flight.promise.complete(value);
+                });
+            } catch (Throwable t) {
+                inFlight.remove(key, flight);
+                flight.promise.completeExceptionally(t);
+            }
+            return caller;
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private final class Flight {
+        private final K key;
+        private final CompletableFuture<V> promise = new CompletableFuture<>();
+        private final AtomicInteger callers = new AtomicInteger(1);
+        private volatile CompletableFuture<V> call;
+
+        private Flight(K key) {
+            this.key = key;
+        }
+
+        /**
+         * @return whether the caller joined, which it can't once every previous caller has cancelled
+         */
+        private boolean join() {
+            for (var n = callers.get(); n > 0; n = callers.get()) {
+                if (callers.compareAndSet(n, n + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private CompletableFuture<V> caller() {
+            var copy = promise.copy();
+            copy.whenComplete((value, error) -> {
+                if (copy.isCancelled() && callers.decrementAndGet() == 0) {
+                    inFlight.remove(key, this);
+                    var running = call;
+                    if (running != null) {
+                        running.cancel(true);
+                    }
+                }
+            });
+            return copy;
+        }
+    }
+}
@@ -1,29 +1,136 @@
 package com.etiennek.oidc.client.utils;
 
-import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.net.URLDecoder;
-import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 
 public class UriUtils {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    // Characters application/x-www-form-urlencoded leaves as is (same set as java.net.URLEncoder)
+    private static final boolean[] SAFE = new boolean[128];
+
+    static {
+        for (var c = 'a'; c <= 'z'; c++)
+            SAFE[c] = true;
+        for (var c = 'A'; c <= 'Z'; c++)
+            SAFE[c] = true;
+        for (var c = '0'; c <= '9'; c++)
+            SAFE[c] = true;
+        SAFE['.'] = true;
+        SAFE['-'] = true;
+        SAFE['*'] = true;
+        SAFE['_'] = true;
+    }
+
     public static String urlEncode(String toEncode) {
-        try {
-            return URLEncoder.encode(toEncode, StandardCharsets.UTF_8.name());
-        } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException(e);
+        final var length = toEncode.length();
+        for (var i = 0; i < length; i++) {
+            final var c = toEncode.charAt(i);
+            if (c >= 128 || !SAFE[c]) {
+                final var sb = new StringBuilder(length + 16);
+                sb.append(toEncode, 0, i);
+                encode(sb, toEncode, i);
+                return sb.toString();
+            }
+        }
+        return toEncode;
+    }
+
+    public static StringBuilder urlEncode(StringBuilder sb, String toEncode) {
+        encode(sb, toEncode, 0);
+        return sb;
+    }
+
+    private static void encode(StringBuilder sb, String s, int from) {
+        final var length = s.length();
+        for (var i = from; i < length; i++) {
+            final var c = s.charAt(i);
+            if (c < 128) {
+                if (SAFE[c])
+                    sb.append(c);
+                else if (c == ' ')
+                    sb.append('+');
+                else
+                    percent(sb, c);
+            } else if (c < 0x800) {
+                percent(sb, 0xC0 | (c >> 6));
+                percent(sb, 0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    final var cp = Character.toCodePoint(c, s.charAt(++i));
+                    percent(sb, 0xF0 | (cp >> 18));
+                    percent(sb, 0x80 | ((cp >> 12) & 0x3F));
+                    percent(sb, 0x80 | ((cp >> 6) & 0x3F));
+                    percent(sb, 0x80 | (cp & 0x3F));
+                } else {
+                    // Unpaired surrogates are replaced with '?', like the UTF-8 encoder does
+                    percent(sb, '?');
+                }
+            } else {
+                percent(sb, 0xE0 | (c >> 12));
+                percent(sb, 0x80 | ((c >> 6) & 0x3F));
+                percent(sb, 0x80 | (c & 0x3F));
+            }
         }
     }
 
+    private static void percent(StringBuilder sb, int b) {
+        sb.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+
     public static String urlDecode(String toDecode) {
-        try {
-            return URLDecoder.decode(toDecode, StandardCharsets.UTF_8.name());
-        } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException(e);
+        final var length = toDecode.length();
+        var i = 0;
+        while (i < length) {
+            final var c = toDecode.charAt(i);
+            if (c == '%' || c == '+')
+                break;
+            i++;
+        }
+        if (i == length) {
+            return toDecode;
         }
+
+        final var sb = new StringBuilder(length);
+        sb.append(toDecode, 0, i);
+        byte[] bytes = null;
+        while (i < length) {
+            final var c = toDecode.charAt(i);
+            if (c == '+') {
+                sb.append(' ');
+                i++;
+            } else if (c == '%') {
+                // Decode a run of consecutive escapes at once so multi-byte UTF-8 sequences stay intact
+                if (bytes == null)
+                    bytes = new byte[(length - i) / 3];
+                var n = 0;
+                while (i + 2 < length && toDecode.charAt(i) == '%') {
+                    bytes[n++] = (byte) ((hex(toDecode, i + 1) << 4) | hex(toDecode, i + 2));
+                    i += 3;
+                }
+                if (i < length && toDecode.charAt(i) == '%') {
+                    throw new IllegalArgumentException("URLDecoder: Incomplete trailing escape (%) pattern");
+                }
+                sb.append(new String(bytes, 0, n, StandardCharsets.UTF_8));
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int hex(String s, int index) {
+        final var c = s.charAt(index);
+        if (c >= '0' && c <= '9')
+            return c - '0';
+        if (c >= 'A' && c <= 'F')
+            return c - 'A' + 10;
+        if (c >= 'a' && c <= 'f')
+            return c - 'a' + 10;
+        throw new IllegalArgumentException("URLDecoder: Illegal hex characters in escape (%) pattern");
     }
 
     public static URI toUri(URL url) {
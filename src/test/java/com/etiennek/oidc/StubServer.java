@@ -0,0 +1,93 @@
+package com.etiennek.oidc;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import static com.etiennek.oidc.client.utils.UriUtils.*;
+
+/**
+ * A local HTTP server standing in for an IdP in tests.
+ */
+public class StubServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    public interface Handler {
+        void handle(HttpExchange exchange) throws Exception;
+    }
+
+    public StubServer() {
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public StubServer handle(String path, Handler handler) {
+        hits.put(path, new AtomicInteger());
+        server.createContext(path, exchange -> {
+            hits.get(path).incrementAndGet();
+            try {
+                handler.handle(exchange);
+            } catch (Exception e) {
+                respond(exchange, 500, "text/plain", e.toString());
+            } finally {
+                exchange.close();
+            }
+        });
+        return this;
+    }
+
+    public StubServer json(String path, String body) {
+        return handle(path, exchange -> respond(exchange, 200, "application/json", body));
+    }
+
+    public String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public URL url(String path) {
+        return toUrl(baseUrl() + path);
+    }
+
+    public int hits(String path) {
+        var counter = hits.get(path);
+        return counter == null ? 0 : counter.get();
+    }
+
+    public static void respond(HttpExchange exchange, int status, String contentType, String body)
+            throws IOException {
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    public static String body(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
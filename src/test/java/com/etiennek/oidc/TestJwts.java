@@ -0,0 +1,117 @@
+package com.etiennek.oidc;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.etiennek.oidc.client.utils.JsonCodec;
+
+/**
+ * Key material and JWT signing for tests.
+ */
+public final class TestJwts {
+    private static final Base64.Encoder BASE64URL = Base64.getUrlEncoder().withoutPadding();
+
+    private TestJwts() {
+    }
+
+    public static KeyPair rsaKeyPair() {
+        try {
+            var generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static KeyPair ecKeyPair() {
+        try {
+            var generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            return generator.generateKeyPair();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static Map<String, Object> jwk(String kid, KeyPair keyPair) {
+        if (keyPair.getPublic() instanceof RSAPublicKey rsa) {
+            return Map.of("kty", "RSA", "kid", kid, "use", "sig",
+                    "n", encode(rsa.getModulus(), 0), "e", encode(rsa.getPublicExponent(), 0));
+        }
+        var ec = (ECPublicKey) keyPair.getPublic();
+        return Map.of("kty", "EC", "kid", kid, "crv", "P-256",
+                "x", encode(ec.getW().getAffineX(), 32), "y", encode(ec.getW().getAffineY(), 32));
+    }
+
+    public static String jwks(Map<?, ?>... jwks) {
+        return json(Map.of("keys", List.of(jwks)));
+    }
+
+    public static String sign(String alg, String kid, PrivateKey key, Map<String, ?> claims) {
+        return sign(alg, kid, null, key, claims);
+    }
+
+    public static String sign(String alg, String kid, String typ, PrivateKey key, Map<String, ?> claims) {
+        var header = new LinkedHashMap<String, String>();
+        header.put("alg", alg);
+        if (kid != null)
+            header.put("kid", kid);
+        if (typ != null)
+            header.put("typ", typ);
+        var signingInput = BASE64URL.encodeToString(json(header).getBytes(StandardCharsets.UTF_8)) + "."
+                + BASE64URL.encodeToString(json(claims).getBytes(StandardCharsets.UTF_8));
+        try {
+            var signature = switch (alg) {
+                case "RS256" -> Signature.getInstance("SHA256withRSA");
+                case "ES256" -> Signature.getInstance("SHA256withECDSAinP1363Format");
+                case "PS256" -> {
+                    var pss = Signature.getInstance("RSASSA-PSS");
+                    pss.setParameter(new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1));
+                    yield pss;
+                }
+                default -> throw new IllegalArgumentException(alg);
+            };
+            signature.initSign(key);
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + BASE64URL.encodeToString(signature.sign());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static String json(Object value) {
+        try {
+            return JsonCodec.mapper().writeValueAsString(value);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String encode(BigInteger value, int length) {
+        var bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (bytes.length < length) {
+            var padded = new byte[length];
+            System.arraycopy(bytes, 0, padded, length - bytes.length, bytes.length);
+            bytes = padded;
+        }
+        return BASE64URL.encodeToString(bytes);
+    }
+}
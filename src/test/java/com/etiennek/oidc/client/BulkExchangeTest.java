@@ -0,0 +1,178 @@
+package com.etiennek.oidc.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.StubServer;
+import com.etiennek.oidc.client.exceptions.IdpException;
+
+public class BulkExchangeTest {
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+    private StubServer server;
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        server = new StubServer().handle("/token", exchange -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+                var body = StubServer.body(exchange);
+                if (body.contains("refresh_token=bad")) {
+                    StubServer.respond(exchange, 400, "application/json", "{\"error\":\"invalid_grant\"}");
+                } else {
+                    StubServer.respond(exchange, 200, "application/json",
+                            "{\"access_token\":\"access\",\"token_type\":\"bearer\"}");
+                }
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        });
+        client = Issuer.builder()
+                .tokenEndpoint(server.url("/token"))
+                .build()
+                .clientBuilder()
+                .clientId("client_id")
+                .clientSecret("client_secret")
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    private static Grant refresh(int i) {
+        var refreshToken = i % 10 == 0 ? "bad" : "refresh_" + i;
+        return Grant.refreshToken(Tokens.builder().refreshToken(refreshToken).build());
+    }
+
+    /**
+     * Requests results in batches, so demand is what drives the exchange.
+     */
+    private static class Collector implements Flow.Subscriber<GrantResult> {
+        final List<GrantResult> results = new ArrayList<>();
+        final CompletableFuture<List<GrantResult>> done = new CompletableFuture<>();
+        final long batch;
+        Flow.Subscription subscription;
+
+        Collector(long batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(batch);
+        }
+
+        @Override
+        public void onNext(GrantResult item) {
+            results.add(item);
+            if (results.size() % batch == 0) {
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(results);
+        }
+    }
+
+    @Test
+    void Should_exchange_all_grants_within_the_concurrency_window() throws Exception {
+        var collector = new Collector(8);
+        client.exchangeAll(IntStream.range(0, 100).mapToObj(BulkExchangeTest::refresh), 4).subscribe(collector);
+
+        var results = collector.done.get(30, TimeUnit.SECONDS);
+        assertEquals(100, results.size());
+        assertEquals(100, server.hits("/token"));
+        assertTrue(maxConcurrent.get() <= 4, "max concurrent requests: " + maxConcurrent.get());
+
+        var failures = results.stream().filter(r -> !r.isSuccess()).toList();
+        assertEquals(10, failures.size());
+        failures.forEach(r -> assertEquals("invalid_grant",
+                assertInstanceOf(IdpException.class, r.error()).getError()));
+        results.stream()
+                .filter(GrantResult::isSuccess)
+                .forEach(r -> assertEquals("access", r.tokens().getAccessToken()));
+    }
+
+    @Test
+    void Should_only_pull_grants_on_demand() throws Exception {
+        var received = new ConcurrentLinkedQueue<GrantResult>();
+        var subscription = new CompletableFuture<Flow.Subscription>();
+        client.exchangeAll(List.of(refresh(1), refresh(2), refresh(3)), 8).subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription.complete(s);
+            }
+
+            @Override
+            public void onNext(GrantResult item) {
+                received.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        Thread.sleep(100);
+        assertEquals(0, server.hits("/token"));
+
+        subscription.get().request(2);
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (received.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        assertEquals(2, received.size());
+        assertEquals(2, server.hits("/token"));
+    }
+
+    @Test
+    void Should_signal_non_positive_requests_only_until_terminated() throws Exception {
+        var collector = new Collector(8);
+        client.exchangeAll(IntStream.range(0, 4).mapToObj(BulkExchangeTest::refresh), 4).subscribe(collector);
+        assertEquals(4, collector.done.get(5, TimeUnit.SECONDS).size());
+
+        // Already completed, so there's nothing left to signal
+        collector.subscription.request(0);
+        assertTrue(collector.done.isDone() && !collector.done.isCompletedExceptionally());
+
+        var rejected = new Collector(0);
+        client.exchangeAll(IntStream.range(0, 4).mapToObj(BulkExchangeTest::refresh), 4).subscribe(rejected);
+        var e = assertThrows(ExecutionException.class, () -> rejected.done.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertEquals(4, server.hits("/token"));
+    }
+}
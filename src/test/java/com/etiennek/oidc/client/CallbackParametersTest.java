@@ -0,0 +1,118 @@
+package com.etiennek.oidc.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.StubServer;
+import com.etiennek.oidc.client.exceptions.IdpException;
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.etiennek.oidc.client.utils.QueryManipulator;
+
+public class CallbackParametersTest {
+    @Test
+    void Should_decode_only_the_authorization_response_parameters() {
+        var parameters = CallbackParameters.parse("?session_state=x&code=a%2Bb+c&st%61te=%E2%82%AC&iss=https%3A%2F%2Fop"
+                + "&scope=openid&error_description");
+        assertEquals("a+b c", parameters.getCode());
+        assertEquals("€", parameters.getState());
+        assertEquals("https://op", parameters.getIss());
+        assertEquals("", parameters.getErrorDescription());
+        assertNull(parameters.getError());
+        assertEquals(Map.of("code", List.of("a+b c"), "state", List.of("€"), "iss", List.of("https://op"),
+                "error_description", List.of("")), parameters.toMap());
+
+        var bytes = "xcode=1&state=€ü%F0%9F%98%80".getBytes(StandardCharsets.UTF_8);
+        var buffer = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+        var fromBytes = CallbackParameters.parse(buffer);
+        assertEquals("1", fromBytes.getCode());
+        assertEquals("€ü😀", fromBytes.getState());
+        assertEquals(1, buffer.position());
+
+        assertEquals("€😀", CallbackParameters.parse(new StringBuilder("state=€😀")).getState());
+    }
+
+    @Test
+    void Should_reject_duplicate_and_malformed_parameters() {
+        assertThrows(RelyingPartyException.class, () -> CallbackParameters.parse("code=1&state=s&code=2"));
+        assertThrows(RelyingPartyException.class, () -> CallbackParameters.parse("state=s&st%61te=t"));
+        assertThrows(RelyingPartyException.class, () -> CallbackParameters.parse("code=%4"));
+        assertEquals("1", CallbackParameters.parse("code=1&other=%zz&other=2").getCode());
+    }
+
+    @Test
+    void Should_complete_the_callback_from_the_raw_query() {
+        try (var server = new StubServer().handle("/token", exchange -> {
+            var body = new QueryManipulator(StubServer.body(exchange));
+            StubServer.respond(exchange, 200, "application/json",
+                    "{\"access_token\":\"" + body.getFirst("code") + "\"}");
+        })) {
+            var client = Issuer.builder()
+                    .issuer("https://op.example.com")
+                    .tokenEndpoint(server.url("/token"))
+                    .build()
+                    .clientBuilder()
+                    .clientId("client_id")
+                    .build();
+            var redirectUri = URI.create("https://rp.example.com/cb");
+            var checks = Client.Checks.builder().state("s1").build();
+
+            var tokens = client.oauthCallback(redirectUri, "code=c1&state=s1&iss=https%3A%2F%2Fop.example.com", checks);
+            assertEquals("c1", tokens.join().getAccessToken());
+            assertEquals("c2", client.sync().oauthCallback(redirectUri, "code=c2&state=s1", checks).getAccessToken());
+
+            var e = assertThrows(IdpException.class,
+                    () -> client.oauthCallback(redirectUri, "error=access_denied&state=s1", checks));
+            assertEquals("access_denied", e.getError());
+            assertTrue(assertThrows(RelyingPartyException.class,
+                    () -> client.oauthCallback(redirectUri, "code=c&state=s1&iss=https%3A%2F%2Fevil", checks))
+                    .getMessage().contains("iss"));
+            assertThrows(RelyingPartyException.class,
+                    () -> client.oauthCallback(redirectUri, "code=c&state=s2", checks));
+            assertEquals(2, server.hits("/token"));
+        }
+    }
+
+    @Test
+    void Should_check_a_callback_the_same_way_whichever_way_it_was_parsed() {
+        try (var server = new StubServer().handle("/token", exchange -> {
+            var code = new QueryManipulator(StubServer.body(exchange)).getFirst("code");
+            StubServer.respond(exchange, 200, "application/json", code.equals("bad")
+                    ? "{\"error\":\"invalid_grant\"}"
+                    : "{\"access_token\":\"" + code + "\"}");
+        })) {
+            var client = Issuer.builder()
+                    .issuer("https://op.example.com")
+                    .tokenEndpoint(server.url("/token"))
+                    .build()
+                    .clientBuilder()
+                    .clientId("client_id")
+                    .build();
+            var redirectUri = URI.create("https://rp.example.com/cb");
+            var noState = Client.Checks.builder().build();
+
+            assertEquals("c1", client.oauthCallback(redirectUri, Map.of("code", List.of("c1")), noState)
+                    .join().getAccessToken());
+            assertEquals("c2", client.oauthCallback(redirectUri, "code=c2", noState).join().getAccessToken());
+
+            assertThrows(RelyingPartyException.class, () -> client.oauthCallback(redirectUri,
+                    Map.of("code", List.of("c"), "iss", List.of("https://evil")), noState));
+            assertThrows(RelyingPartyException.class,
+                    () -> client.oauthCallback(redirectUri, "code=c&iss=https%3A%2F%2Fevil", noState));
+
+            var e = assertThrows(IdpException.class,
+                    () -> client.sync().oauthCallback(redirectUri, "code=bad", noState));
+            assertEquals("invalid_grant", e.getError());
+            assertEquals(Map.of("code", List.of("bad")), e.getParameters());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.etiennek.oidc.client;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.MutableClock;
+import com.etiennek.oidc.client.jose.Jws;
+import com.etiennek.oidc.client.jose.JwsAlgorithm;
+import com.etiennek.oidc.client.utils.JsonCodec;
+import com.etiennek.oidc.client.utils.QueryManipulator;
+
+public class ClientAuthenticationTest {
+    private static final URI TOKEN_ENDPOINT = URI.create("https://op.example.com/token");
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+
+    private static Map<String, Object> claims(Jws jws) throws Exception {
+        return JsonCodec.readerFor(JsonCodec.MAP_TYPE).readValue(jws.payload());
+    }
+
+    @Test
+    void Should_send_form_encoded_credentials_in_a_basic_authorization_header() {
+        var form = new QueryManipulator();
+        var request = HttpRequest.newBuilder(TOKEN_ENDPOINT);
+        ClientAuthentication.clientSecretBasic("s3cr:t").apply("client id", TOKEN_ENDPOINT, form, request);
+
+        assertEquals("", form.toQueryString());
+        assertEquals("Basic Y2xpZW50K2lkOnMzY3IlM0F0",
+                request.GET().build().headers().firstValue("Authorization").orElseThrow());
+    }
+
+    @Test
+    void Should_sign_private_key_jwt_assertions_with_unique_ids() throws Exception {
+        var generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(256);
+        var keyPair = generator.generateKeyPair();
+        var authentication = JwtClientAuthentication.builder()
+                .privateKey(keyPair.getPrivate())
+                .keyId("k1")
+                .clock(clock)
+                .build();
+
+        var ids = new HashSet<Object>();
+        for (var i = 0; i < 10; i++) {
+            var form = new QueryManipulator();
+            authentication.apply("client", TOKEN_ENDPOINT, form, HttpRequest.newBuilder(TOKEN_ENDPOINT));
+            assertEquals(JwtClientAuthentication.CLIENT_ASSERTION_TYPE, form.getFirst("client_assertion_type"));
+            assertNull(form.getFirst("client_secret"));
+
+            var jws = Jws.parse(form.getFirst("client_assertion"));
+            assertEquals("ES256", jws.header().alg());
+            assertEquals("k1", jws.header().kid());
+            assertTrue(JwsAlgorithm.ES256.verify(keyPair.getPublic(), jws.signingInput(), jws.signature()));
+
+            var claims = claims(jws);
+            assertEquals("client", claims.get("iss"));
+            assertEquals("client", claims.get("sub"));
+            assertEquals(TOKEN_ENDPOINT.toString(), claims.get("aud"));
+            assertEquals(1704067260, ((Number) claims.get("exp")).longValue());
+            ids.add(claims.get("jti"));
+        }
+        assertEquals(10, ids.size());
+    }
+
+    @Test
+    void Should_sign_client_secret_jwt_assertions_with_hs256() throws Exception {
+        var secret = "0123456789abcdef0123456789abcdef";
+        var jws = Jws.parse(ClientAuthentication.clientSecretJwt(secret).assertion("client", "https://op"));
+
+        var mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        assertEquals("HS256", jws.header().alg());
+        assertArrayEquals(mac.doFinal(jws.signingInput()), jws.signature());
+        assertEquals("https://op", claims(jws).get("aud"));
+    }
+
+    @Test
+    void Should_use_pregenerated_assertions_only_while_fresh() throws Exception {
+        var generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        try (var authentication = JwtClientAuthentication.builder()
+                .privateKey(generator.generateKeyPair().getPrivate())
+                .pregenerate(4)
+                .clock(clock)
+                .build()) {
+            var ids = new HashSet<Object>();
+            for (var i = 0; i < 20; i++) {
+                ids.add(claims(Jws.parse(authentication.assertion("client", "aud"))).get("jti"));
+                Thread.sleep(5);
+            }
+            assertEquals(20, ids.size());
+
+            Thread.sleep(200);
+            clock.advance(Duration.ofSeconds(31));
+            var claims = claims(Jws.parse(authentication.assertion("client", "aud")));
+            assertEquals(1704067231, ((Number) claims.get("iat")).longValue());
+        }
+    }
+
+    @Test
+    void Should_reject_keys_that_do_not_match_the_algorithm() throws Exception {
+        var key = KeyPairGenerator.getInstance("EC").generateKeyPair().getPrivate();
+        assertThrows(IllegalArgumentException.class,
+                () -> ClientAuthentication.privateKeyJwt(key, JwsAlgorithm.RS256, null));
+    }
+}
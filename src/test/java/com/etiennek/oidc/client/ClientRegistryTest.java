@@ -0,0 +1,169 @@
+package com.etiennek.oidc.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.MutableClock;
+import com.etiennek.oidc.StubServer;
+
+import static com.etiennek.oidc.client.utils.UriUtils.*;
+
+public class ClientRegistryTest {
+    private static final Map<String, String> ISSUERS = Map.of(
+            "acme", "https://op-1.example.com",
+            "globex", "https://op-1.example.com",
+            "initech", "https://op-2.example.com");
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+    private final ConcurrentHashMap<String, AtomicInteger> resolutions = new ConcurrentHashMap<>();
+    private final AtomicReference<CompletableFuture<Client.ClientBuilder>> pending = new AtomicReference<>();
+    private ClientRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = ClientRegistry.builder()
+                .resolver(tenantId -> {
+                    var count = resolutions.computeIfAbsent(tenantId, id -> new AtomicInteger()).incrementAndGet();
+                    var issuer = ISSUERS.get(tenantId);
+                    var builder = Issuer.builder()
+                            .issuer(issuer)
+                            .jwksUri(toUrl(issuer + "/jwks"))
+                            .build()
+                            .clientBuilder()
+                            .clientId(tenantId + "-" + count);
+                    var waiting = pending.getAndSet(null);
+                    if (waiting != null) {
+                        return waiting.thenApply(ignored -> builder);
+                    }
+                    return CompletableFuture.completedFuture(builder);
+                })
+                .idleTimeout(Duration.ofMinutes(10))
+                .clock(clock)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+    }
+
+    @Test
+    void Should_create_clients_lazily_once_per_tenant() {
+        assertEquals(0, registry.size());
+        pending.set(new CompletableFuture<>());
+        var waiting = pending.get();
+
+        var futures = new ArrayList<CompletableFuture<Client>>();
+        for (var i = 0; i < 10; i++) {
+            futures.add(registry.get("acme"));
+        }
+        waiting.complete(null);
+
+        var client = futures.get(0).join();
+        futures.forEach(future -> assertSame(client, future.join()));
+        assertSame(client, registry.get("acme").join());
+        assertEquals(1, resolutions.get("acme").get());
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void Should_share_the_transport_and_the_keys_of_an_issuer() {
+        var acme = registry.get("acme").join();
+        var globex = registry.get("globex").join();
+        var initech = registry.get("initech").join();
+
+        assertSame(acme.getTransport(), initech.getTransport());
+        assertSame(acme.getJwksCache(), globex.getJwksCache());
+        assertNotSame(acme.getJwksCache(), initech.getJwksCache());
+    }
+
+    @Test
+    void Should_evict_idle_tenants() {
+        var acme = registry.get("acme").join();
+        clock.advance(Duration.ofMinutes(6));
+        registry.get("globex").join();
+        clock.advance(Duration.ofMinutes(6));
+
+        registry.evictIdle();
+        assertEquals(1, registry.size());
+        assertNotSame(acme, registry.get("acme").join());
+        assertEquals(2, resolutions.get("acme").get());
+    }
+
+    @Test
+    void Should_keep_serving_the_current_client_while_reloading() {
+        var before = registry.get("acme").join();
+        pending.set(new CompletableFuture<>());
+        var waiting = pending.get();
+
+        var reload = registry.reload("acme");
+        assertSame(before, registry.get("acme").join());
+
+        waiting.complete(null);
+        var after = reload.join();
+        assertEquals("acme-2", after.getClientId());
+        assertSame(after, registry.get("acme").join());
+        assertSame(before.getJwksCache(), after.getJwksCache());
+    }
+
+    @Test
+    void Should_close_a_client_authentication_once_no_tenant_uses_it() {
+        var authentication = ClientAuthentication.clientSecretJwt("0123456789abcdef0123456789abcdef");
+        try (var shared = ClientRegistry.builder()
+                .resolver(tenantId -> CompletableFuture.completedFuture(Issuer.builder()
+                        .issuer(ISSUERS.get(tenantId))
+                        .build()
+                        .clientBuilder()
+                        .clientId(tenantId)
+                        .clientAuthentication(authentication)))
+                .build()) {
+            shared.get("acme").join();
+            shared.get("globex").join();
+
+            shared.reload("acme").join();
+            shared.remove("globex");
+            assertFalse(authentication.isClosed());
+
+            shared.remove("acme");
+            assertTrue(authentication.isClosed());
+        }
+    }
+
+    @Test
+    void Should_leave_shared_resources_open_when_a_tenant_closes_its_client() {
+        var authentication = ClientAuthentication.clientSecretJwt("0123456789abcdef0123456789abcdef");
+        try (var server = new StubServer().json("/userinfo", "{\"sub\":\"alice\"}");
+                var shared = ClientRegistry.builder()
+                        .resolver(tenantId -> CompletableFuture.completedFuture(Issuer.builder()
+                                .issuer(ISSUERS.get(tenantId))
+                                .userinfoEndpoint(server.url("/userinfo"))
+                                .build()
+                                .clientBuilder()
+                                .clientId(tenantId)
+                                .clientAuthentication(authentication)))
+                        .build()) {
+            var tokens = Tokens.builder().accessToken("alice").build();
+            shared.get("acme").join().close();
+
+            assertEquals("alice", shared.get("globex").join().userinfo(tokens).join().getSub());
+            assertEquals("alice", shared.get("acme").join().userinfo(tokens).join().getSub());
+            assertFalse(authentication.isClosed());
+        }
+    }
+}
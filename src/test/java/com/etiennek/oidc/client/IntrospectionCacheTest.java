@@ -0,0 +1,131 @@
+package com.etiennek.oidc.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.MutableClock;
+import com.etiennek.oidc.StubServer;
+import com.etiennek.oidc.client.jose.Jws;
+import com.etiennek.oidc.client.utils.JsonCodec;
+import com.etiennek.oidc.client.utils.QueryManipulator;
+
+import static com.etiennek.oidc.client.utils.UriUtils.*;
+
+public class IntrospectionCacheTest {
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final MutableClock clock = new MutableClock(NOW);
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private StubServer server;
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        server = new StubServer().handle("/introspect", exchange -> {
+            var body = StubServer.body(exchange);
+            bodies.add(body);
+            var token = new QueryManipulator(body).getFirst("token");
+            if (token.startsWith("slow")) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            var response = token.startsWith("bad") ? "{\"active\":false}" : """
+                    {"active":true,"sub":"%s","aud":"api","exp":%d}""".formatted(token, NOW.getEpochSecond() + 30);
+            StubServer.respond(exchange, 200, "application/json", response);
+        });
+        client = Issuer.builder()
+                .introspectionEndpoint(server.url("/introspect"))
+                .build()
+                .clientBuilder()
+                .clientId("api")
+                .clientSecret("secret")
+                .clock(clock)
+                .introspectionCache(IntrospectionCache.builder()
+                        .ttl(Duration.ofMinutes(5))
+                        .negativeTtl(Duration.ofSeconds(5))
+                        .clock(clock)
+                        .build())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void Should_cache_active_results_until_the_token_expires() {
+        var result = client.introspect("alice").join();
+        assertTrue(result.isActive());
+        assertEquals("alice", result.getSub());
+        assertEquals(List.of("api"), result.getAud());
+        assertEquals(NOW.plusSeconds(30), result.expiresAt());
+        assertEquals("api", new QueryManipulator(bodies.get(0)).getFirst("client_id"));
+        assertEquals("secret", new QueryManipulator(bodies.get(0)).getFirst("client_secret"));
+
+        clock.advance(Duration.ofSeconds(29));
+        client.introspect("alice").join();
+        assertEquals(1, server.hits("/introspect"));
+
+        clock.advance(Duration.ofSeconds(1));
+        client.introspect("alice").join();
+        assertEquals(2, server.hits("/introspect"));
+    }
+
+    @Test
+    void Should_cache_inactive_results_briefly() {
+        assertFalse(client.introspect("bad").join().isActive());
+        assertFalse(client.sync().introspect("bad").isActive());
+        assertEquals(1, server.hits("/introspect"));
+
+        clock.advance(Duration.ofSeconds(5));
+        client.introspect("bad").join();
+        assertEquals(2, server.hits("/introspect"));
+    }
+
+    @Test
+    void Should_address_client_assertions_to_the_token_endpoint() throws Exception {
+        try (var jwtClient = Issuer.builder()
+                .tokenEndpoint(toUrl("https://op.example.com/token"))
+                .introspectionEndpoint(server.url("/introspect"))
+                .build()
+                .clientBuilder()
+                .clientId("api")
+                .clientAuthentication(ClientAuthentication.clientSecretJwt("0123456789abcdef0123456789abcdef"))
+                .build()) {
+            jwtClient.introspect("alice").join();
+
+            var assertion = Jws.parse(new QueryManipulator(bodies.get(0)).getFirst("client_assertion"));
+            Map<String, Object> claims = JsonCodec.readerFor(JsonCodec.MAP_TYPE).readValue(assertion.payload());
+            assertEquals("https://op.example.com/token", claims.get("aud"));
+        }
+    }
+
+    @Test
+    void Should_coalesce_concurrent_lookups_of_the_same_token() {
+        var futures = new ArrayList<CompletableFuture<TokenIntrospection>>();
+        for (var i = 0; i < 10; i++) {
+            futures.add(client.introspect("slow"));
+        }
+        release.countDown();
+
+        futures.forEach(future -> assertEquals("slow", future.join().getSub()));
+        assertEquals(1, server.hits("/introspect"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.etiennek.oidc.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.MutableClock;
+import com.etiennek.oidc.StubServer;
+import com.etiennek.oidc.client.exceptions.IdpException;
+
+public class IssuerMetadataCacheTest {
+    private static final String WELL_KNOWN = IssuerMetadataCache.WELL_KNOWN_PATH;
+
+    private StubServer server;
+    private MutableClock clock;
+    private IssuerMetadataCache cache;
+
+    @BeforeEach
+    void setUp() {
+        server = new StubServer();
+        clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        cache = IssuerMetadataCache.builder().clock(clock).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.close();
+        server.close();
+    }
+
+    private String metadata(String tokenPath) {
+        var base = server.baseUrl();
+        return """
+                {
+                    "issuer":"%s",
+                    "authorization_endpoint":"%s/authorize",
+                    "token_endpoint":"%s%s",
+                    "userinfo_endpoint":"%s/userinfo",
+                    "jwks_uri":"%s/jwks",
+                    "unknown_property":["ignored"]
+                }""".formatted(base, base, base, tokenPath, base, base);
+    }
+
+    @Test
+    void Should_discover_issuer_metadata() {
+        server.json(WELL_KNOWN, metadata("/token"));
+
+        var issuer = cache.get(server.url("")).join();
+
+        assertEquals(server.baseUrl(), issuer.getIssuer());
+        assertEquals(server.url("/authorize"), issuer.getAuthorizationEndpoint());
+        assertEquals(server.url("/token"), issuer.getTokenEndpoint());
+        assertEquals(server.url("/userinfo"), issuer.getUserinfoEndpoint());
+        assertEquals(server.url("/jwks"), issuer.getJwksUri());
+
+        assertSame(issuer, cache.get(server.url("")).join());
+        assertEquals(1, server.hits(WELL_KNOWN));
+    }
+
+    @Test
+    void Should_collapse_concurrent_discoveries_of_the_same_issuer() throws Exception {
+        var release = new CountDownLatch(1);
+        var body = metadata("/token");
+        server.handle(WELL_KNOWN, exchange -> {
+            release.await(5, TimeUnit.SECONDS);
+            StubServer.respond(exchange, 200, "application/json", body);
+        });
+
+        var futures = new ArrayList<CompletableFuture<Issuer>>();
+        for (var i = 0; i < 16; i++) {
+            futures.add(cache.get(server.url("")));
+        }
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        assertEquals(1, server.hits(WELL_KNOWN));
+    }
+
+    @Test
+    void Should_serve_stale_metadata_while_refreshing_after_max_age() throws Exception {
+        var tokenPath = new AtomicReference<>("/token");
+        server.handle(WELL_KNOWN, exchange -> {
+            exchange.getResponseHeaders().set("Cache-Control", "public, max-age=300");
+            StubServer.respond(exchange, 200, "application/json", metadata(tokenPath.get()));
+        });
+
+        var first = cache.get(server.url("")).join();
+        clock.advance(Duration.ofSeconds(299));
+        assertSame(first, cache.get(server.url("")).join());
+        assertEquals(1, server.hits(WELL_KNOWN));
+
+        tokenPath.set("/rotated/token");
+        clock.advance(Duration.ofSeconds(1));
+        assertSame(first, cache.get(server.url("")).join());
+
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Issuer refreshed;
+        do {
+            Thread.sleep(10);
+            refreshed = cache.get(server.url("")).join();
+        } while (refreshed == first && System.nanoTime() < deadline);
+
+        assertEquals(server.url("/rotated/token"), refreshed.getTokenEndpoint());
+        assertEquals(2, server.hits(WELL_KNOWN));
+    }
+
+    @Test
+    void Should_reject_metadata_of_another_issuer() {
+        server.json(WELL_KNOWN, metadata("/token").replace("\"issuer\":\"", "\"issuer\":\"https://evil.example"));
+
+        var e = assertThrows(CompletionException.class, () -> cache.get(server.url("")).join());
+        assertInstanceOf(IdpException.class, e.getCause());
+    }
+}
@@ -0,0 +1,185 @@
+package com.etiennek.oidc.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.StubServer;
+import com.etiennek.oidc.client.exceptions.IdpException;
+import com.etiennek.oidc.client.http.HttpTransport;
+import com.etiennek.oidc.client.http.ResiliencePolicy;
+
+public class ReactiveClientTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+    private StubServer server;
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        server = new StubServer()
+                .handle("/token", exchange -> {
+                    var body = StubServer.body(exchange);
+                    if (body.contains("refresh_token=slow")) {
+                        release.await(5, TimeUnit.SECONDS);
+                    }
+                    if (body.contains("refresh_token=bad")) {
+                        StubServer.respond(exchange, 400, "application/json", "{\"error\":\"invalid_grant\"}");
+                    } else {
+                        StubServer.respond(exchange, 200, "application/json", "{\"access_token\":\"access\"}");
+                    }
+                })
+                .handle("/userinfo", exchange -> {
+                    maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                        StubServer.respond(exchange, 200, "application/json", "{\"sub\":\"subject\"}");
+                    } finally {
+                        concurrent.decrementAndGet();
+                    }
+                });
+        client = Issuer.builder()
+                .tokenEndpoint(server.url("/token"))
+                .userinfoEndpoint(server.url("/userinfo"))
+                .build()
+                .clientBuilder()
+                .clientId("client_id")
+                .clientSecret("client_secret")
+                .transport(HttpTransport.builder()
+                        .resilience(ResiliencePolicy.builder().maxConcurrentRequests(2).build())
+                        .build())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        client.close();
+        server.close();
+    }
+
+    private static Tokens tokens(String refreshToken) {
+        return Tokens.builder().accessToken("access").refreshToken(refreshToken).build();
+    }
+
+    private static class Collector<T> implements Flow.Subscriber<T> {
+        final CompletableFuture<T> done = new CompletableFuture<>();
+        final AtomicInteger signals = new AtomicInteger();
+        final boolean request;
+        T item;
+        Flow.Subscription subscription;
+
+        Collector(boolean request) {
+            this.request = request;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (request) {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(T item) {
+            signals.incrementAndGet();
+            this.item = item;
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            signals.incrementAndGet();
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            signals.incrementAndGet();
+            done.complete(item);
+        }
+    }
+
+    private void awaitHits(String path, int hits) throws InterruptedException {
+        for (var i = 0; i < 500 && server.hits(path) < hits; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(hits, server.hits(path));
+    }
+
+    @Test
+    void Should_publish_the_result_of_each_subscription() throws Exception {
+        var reactive = client.reactive(4);
+        var refresh = reactive.refresh(tokens("refresh"));
+
+        var first = new Collector<Tokens>(true);
+        var second = new Collector<Tokens>(true);
+        refresh.subscribe(first);
+        refresh.subscribe(second);
+        assertEquals("access", first.done.get(5, TimeUnit.SECONDS).getAccessToken());
+        assertEquals("access", second.done.get(5, TimeUnit.SECONDS).getAccessToken());
+        assertEquals(2, server.hits("/token"));
+
+        var failed = new Collector<Tokens>(true);
+        reactive.exchange(Grant.refreshToken(tokens("bad"))).subscribe(failed);
+        var error = failed.done.handle((t, e) -> e).get(5, TimeUnit.SECONDS);
+        assertEquals("invalid_grant", assertInstanceOf(IdpException.class, error).getError());
+        assertEquals(1, failed.signals.get());
+    }
+
+    @Test
+    void Should_abort_the_request_in_flight_on_cancel() throws Exception {
+        var refresh = client.reactive(4).refresh(tokens("slow"));
+        var slow = new Collector<Tokens>(true);
+        var slower = new Collector<Tokens>(true);
+        refresh.subscribe(slow);
+        refresh.subscribe(slower);
+        awaitHits("/token", 2);
+
+        slow.subscription.cancel();
+        slower.subscription.cancel();
+        // The bulkhead only allows two requests, so this only gets through if the slow ones were aborted
+        assertEquals("access", client.refresh(tokens("fast")).get(5, TimeUnit.SECONDS).getAccessToken());
+        assertEquals(0, slow.signals.get() + slower.signals.get());
+        assertFalse(slow.done.isDone());
+    }
+
+    @Test
+    void Should_only_send_requested_calls_within_the_concurrency_limit() throws Exception {
+        var reactive = client.reactive(2);
+
+        var unrequested = new Collector<UserInfo>(false);
+        reactive.userinfo(tokens("refresh")).subscribe(unrequested);
+        var collectors = new ArrayList<Collector<UserInfo>>();
+        for (var i = 0; i < 6; i++) {
+            var collector = new Collector<UserInfo>(true);
+            // Distinct access tokens, so the transport doesn't coalesce the requests
+            reactive.userinfo(Tokens.builder().accessToken("access_" + i).build()).subscribe(collector);
+            collectors.add(collector);
+        }
+        awaitHits("/userinfo", 2);
+        Thread.sleep(100);
+        assertEquals(2, server.hits("/userinfo"));
+
+        collectors.getLast().subscription.cancel();
+        release.countDown();
+        for (var collector : collectors.subList(0, 5)) {
+            assertEquals("subject", collector.done.get(5, TimeUnit.SECONDS).getSub());
+        }
+        assertEquals(5, server.hits("/userinfo"));
+        assertEquals(2, maxConcurrent.get());
+        assertEquals(0, unrequested.signals.get());
+    }
+}
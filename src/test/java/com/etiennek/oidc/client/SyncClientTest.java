@@ -0,0 +1,97 @@
+package com.etiennek.oidc.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.StubServer;
+import com.etiennek.oidc.client.exceptions.IdpException;
+import com.etiennek.oidc.client.metrics.Endpoint;
+import com.etiennek.oidc.client.metrics.Instrumentation;
+import com.etiennek.oidc.client.metrics.Phase;
+
+public class SyncClientTest {
+    private final AtomicReference<Thread> parsedOn = new AtomicReference<>();
+    private StubServer server;
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        server = new StubServer()
+                .json("/userinfo", "{\"sub\":\"248289761001\"}")
+                .handle("/token", exchange -> {
+                    if (StubServer.body(exchange).contains("refresh_token=bad")) {
+                        StubServer.respond(exchange, 400, "application/json", "{\"error\":\"invalid_grant\"}");
+                    } else {
+                        StubServer.respond(exchange, 200, "application/json", "{\"access_token\":\"access\"}");
+                    }
+                });
+        client = Issuer.builder()
+                .tokenEndpoint(server.url("/token"))
+                .userinfoEndpoint(server.url("/userinfo"))
+                .build()
+                .clientBuilder()
+                .clientId("client_id")
+                .instrumentation(new Instrumentation() {
+                    @Override
+                    public void timer(Endpoint endpoint, Phase phase, long nanos) {
+                        if (phase == Phase.PARSE) {
+                            parsedOn.set(Thread.currentThread());
+                        }
+                    }
+                })
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    private static Tokens refreshToken(String refreshToken) {
+        return Tokens.builder().refreshToken(refreshToken).accessToken("access").build();
+    }
+
+    @Test
+    void Should_parse_responses_on_the_calling_virtual_thread() throws Exception {
+        var result = new CompletableFuture<Thread>();
+        Thread.ofVirtual().start(() -> {
+            try {
+                var tokens = client.sync().refresh(refreshToken("refresh"));
+                assertEquals("access", tokens.getAccessToken());
+                assertEquals("248289761001", client.sync().userinfo(tokens).getSub());
+                result.complete(Thread.currentThread());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+
+        var caller = result.get();
+        assertTrue(caller.isVirtual());
+        assertSame(caller, parsedOn.get());
+    }
+
+    @Test
+    void Should_throw_failures_unwrapped() {
+        var e = assertThrows(IdpException.class, () -> client.sync().refresh(refreshToken("bad")));
+        assertEquals("invalid_grant", e.getError());
+    }
+
+    @Test
+    void Should_parse_on_the_supplied_executor() throws Exception {
+        try (var executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "parse-executor"))) {
+            client.refresh(refreshToken("refresh"), executor).join();
+            assertEquals("parse-executor", parsedOn.get().getName());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.etiennek.oidc.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.StubServer;
+
+public class TokenManagerTest {
+    private final AtomicInteger issued = new AtomicInteger();
+    private final AtomicInteger expiresIn = new AtomicInteger(3600);
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private StubServer server;
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        server = new StubServer().handle("/token", exchange -> {
+            var body = StubServer.body(exchange);
+            assertTrue(body.contains("grant_type=refresh_token"));
+            release.await(5, TimeUnit.SECONDS);
+            StubServer.respond(exchange, 200, "application/json", """
+                    {"access_token":"access_%d","token_type":"bearer","expires_in":%d}"""
+                    .formatted(issued.incrementAndGet(), expiresIn.get()));
+        });
+        client = Issuer.builder()
+                .tokenEndpoint(server.url("/token"))
+                .build()
+                .clientBuilder()
+                .clientId("client_id")
+                .clientSecret("client_secret")
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    private Tokens tokens(long expiresInSeconds) {
+        return Tokens.builder()
+                .accessToken("access_0")
+                .refreshToken("refresh_0")
+                .expiresIn(expiresInSeconds)
+                .expiresAt(client.getClock().instant().plusSeconds(expiresInSeconds))
+                .build();
+    }
+
+    @Test
+    void Should_refresh_tokens_and_keep_the_refresh_token_when_none_is_returned() {
+        var refreshed = client.refresh(tokens(3600)).join();
+
+        assertEquals("access_1", refreshed.getAccessToken());
+        assertEquals("refresh_0", refreshed.getRefreshToken());
+        assertEquals(3600L, refreshed.getExpiresIn());
+    }
+
+    @Test
+    void Should_collapse_concurrent_refreshes_of_a_session() {
+        try (var manager = TokenManager.builder().client(client).build()) {
+            manager.put("session", tokens(3600));
+            release = new CountDownLatch(1);
+
+            var futures = new ArrayList<CompletableFuture<Tokens>>();
+            for (var i = 0; i < 32; i++) {
+                futures.add(manager.refresh("session"));
+            }
+            release.countDown();
+            futures.forEach(f -> assertEquals("access_1", f.join().getAccessToken()));
+
+            assertEquals(1, server.hits("/token"));
+            assertEquals("access_1", manager.get("session").join().getAccessToken());
+        }
+    }
+
+    @Test
+    void Should_keep_a_login_put_while_the_previous_session_was_refreshing() {
+        try (var manager = TokenManager.builder().client(client).build()) {
+            manager.put("session", tokens(3600));
+            release = new CountDownLatch(1);
+            var refresh = manager.refresh("session");
+
+            var login = Tokens.builder().accessToken("access_login").refreshToken("refresh_login").build();
+            manager.put("session", login);
+            release.countDown();
+
+            assertEquals("access_login", refresh.join().getAccessToken());
+            assertEquals("access_login", manager.get("session").join().getAccessToken());
+        }
+    }
+
+    @Test
+    void Should_renew_tokens_ahead_of_expiry() throws Exception {
+        try (var manager = TokenManager.builder()
+                .client(client)
+                .refreshAhead(Duration.ofMillis(1500))
+                .jitter(Duration.ofMillis(200))
+                .build()) {
+            manager.put("session", tokens(2));
+
+            var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (manager.get("session").join().getAccessToken().equals("access_0")
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(1, server.hits("/token"));
+            assertEquals("access_1", manager.get("session").join().getAccessToken());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.etiennek.oidc.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.MutableClock;
+import com.etiennek.oidc.StubServer;
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.etiennek.oidc.client.utils.QueryManipulator;
+
+public class TransactionManagerTest {
+    private static final byte[] KEY_1 = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEY_2 = "fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.US_ASCII);
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+
+    private TransactionManager manager(String signingKeyId) {
+        return TransactionManager.builder()
+                .key("k1", KEY_1)
+                .key("k2", KEY_2)
+                .signingKeyId(signingKeyId)
+                .ttl(Duration.ofMinutes(5))
+                .clock(clock)
+                .build();
+    }
+
+    @Test
+    void Should_seal_and_open_transactions() {
+        var manager = manager("k1");
+        var transaction = manager.begin();
+        var sealed = manager.seal(transaction);
+
+        assertEquals(transaction, manager.open(sealed));
+        assertEquals(43, transaction.codeVerifier().length());
+        assertNotEquals(transaction.state(), manager.begin().state());
+        assertTrue(sealed.length() < 200, sealed);
+    }
+
+    @Test
+    void Should_open_values_sealed_with_a_previous_key_after_rotation() {
+        var transaction = manager("k1").begin();
+        var sealed = manager("k1").seal(transaction);
+
+        assertEquals(transaction, manager("k2").open(sealed));
+
+        var withoutOldKey = TransactionManager.builder().key("k2", KEY_2).signingKeyId("k2").clock(clock).build();
+        assertThrows(RelyingPartyException.class, () -> withoutOldKey.open(sealed));
+    }
+
+    @Test
+    void Should_reject_tampered_expired_and_malformed_values() {
+        var manager = manager("k1");
+        var sealed = manager.seal(manager.begin());
+
+        var payload = sealed.substring(0, sealed.indexOf('.'));
+        var tampered = payload.substring(0, payload.length() - 2)
+                + (payload.charAt(payload.length() - 2) == 'A' ? 'B' : 'A')
+                + sealed.substring(payload.length() - 1);
+        assertThrows(RelyingPartyException.class, () -> manager.open(tampered));
+        assertThrows(RelyingPartyException.class, () -> manager.open("garbage"));
+        assertThrows(RelyingPartyException.class, () -> manager.open("a.b"));
+        assertThrows(RelyingPartyException.class, () -> manager.open(null));
+
+        clock.advance(Duration.ofMinutes(5));
+        assertThrows(RelyingPartyException.class, () -> manager.open(sealed));
+    }
+
+    @Test
+    void Should_reject_short_keys() {
+        assertThrows(IllegalArgumentException.class,
+                () -> TransactionManager.builder().key("k", new byte[16]).signingKeyId("k").build());
+    }
+
+    @Test
+    void Should_reject_key_ids_that_are_not_ascii() {
+        assertThrows(IllegalArgumentException.class,
+                () -> TransactionManager.builder().key("clé", new byte[32]).signingKeyId("clé").build());
+    }
+
+    @Test
+    void Should_bind_the_authorization_request_and_code_exchange_to_the_transaction() {
+        var transaction = manager("k1").begin();
+        var body = new AtomicReference<String>();
+        try (var server = new StubServer().handle("/token", exchange -> {
+            body.set(StubServer.body(exchange));
+            StubServer.respond(exchange, 200, "application/json", "{\"access_token\":\"access\"}");
+        })) {
+            var client = Issuer.builder()
+                    .authorizationEndpoint(server.url("/authorize"))
+                    .tokenEndpoint(server.url("/token"))
+                    .build()
+                    .clientBuilder()
+                    .clientId("client_id")
+                    .build();
+
+            var query = new QueryManipulator(
+                    client.authorizationUrlBuilder().transaction(transaction).build().getQuery());
+            assertEquals(transaction.state(), query.getFirst("state"));
+            assertEquals(transaction.nonce(), query.getFirst("nonce"));
+            assertEquals(transaction.codeChallenge(), query.getFirst("code_challenge"));
+            assertEquals("S256", query.getFirst("code_challenge_method"));
+
+            var redirectUri = URI.create("https://rp.example.com/cb");
+            client.exchange(Grant.authorizationCode("code", redirectUri, null, transaction.codeVerifier())).join();
+            assertEquals(transaction.codeVerifier(), new QueryManipulator(body.get()).getFirst("code_verifier"));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.etiennek.oidc.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+public class UserInfoTest {
+    private static final UserInfo USERINFO = UserInfo.of("""
+            {
+                "sub":"248289761001",
+                "groups":["admins","users"],
+                "email":"janedoe@example.com",
+                "email_verified":true,
+                "address":{"locality":"Cape Town","country":"ZA"},
+                "updated_at":1704067200,
+                "tenant":{"id":42,"name":"example"},
+                "nickname":null
+            }""".getBytes(StandardCharsets.UTF_8));
+
+    record Profile(@JsonProperty("sub") String subject, @JsonProperty("groups") List<String> groups) {
+    }
+
+    @Test
+    void Should_expose_standard_claims() {
+        assertEquals("248289761001", USERINFO.getSub());
+        assertEquals("janedoe@example.com", USERINFO.getEmail());
+        assertTrue(USERINFO.getEmailVerified());
+        assertEquals("Cape Town", USERINFO.getAddress().getLocality());
+        assertEquals(Instant.parse("2024-01-01T00:00:00Z"), USERINFO.getUpdatedAt());
+        assertNull(USERINFO.getNickname());
+        assertNull(USERINFO.getPhoneNumber());
+    }
+
+    @Test
+    void Should_decode_single_claims_on_demand() {
+        assertEquals(List.of("admins", "users"), USERINFO.claim("groups", new TypeReference<List<String>>() {
+        }));
+        assertEquals(42, USERINFO.claim("tenant", new TypeReference<Map<String, Object>>() {
+        }).get("id"));
+        assertEquals("janedoe@example.com", USERINFO.claim("email", String.class));
+        assertNull(USERINFO.claim("nickname", String.class));
+        assertNull(USERINFO.claim("missing", String.class));
+        assertThrows(RelyingPartyException.class, () -> USERINFO.claim("groups", Integer.class));
+    }
+
+    @Test
+    void Should_bind_to_a_record_or_a_map() {
+        assertEquals(new Profile("248289761001", List.of("admins", "users")), USERINFO.as(Profile.class));
+        assertEquals(List.of("admins", "users"), USERINFO.toMap().get("groups"));
+    }
+
+    @Test
+    void Should_reject_responses_that_are_not_json_objects() {
+        assertThrows(RelyingPartyException.class, () -> UserInfo.of("[]".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(RelyingPartyException.class, () -> UserInfo.of(new byte[0]));
+        assertThrows(RelyingPartyException.class,
+                () -> UserInfo.of("{\"sub\":\"1\",\"groups\":[\"admins\"".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(RelyingPartyException.class,
+                () -> UserInfo.of("{\"sub\":\"1\"} {}".getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,84 @@
+package com.etiennek.oidc.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.StubServer;
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+
+public class UserinfoCacheTest {
+    private StubServer server;
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        server = new StubServer().handle("/userinfo", exchange -> {
+            var token = exchange.getRequestHeaders().getFirst("Authorization").substring("Bearer ".length());
+            var body = token.equals("truncated") ? "{\"sub\":\"truncated\",\"groups\":[" : """
+                    {"sub":"%s"}""".formatted(token);
+            StubServer.respond(exchange, 200, "application/json", body);
+        });
+        client = Issuer.builder()
+                .userinfoEndpoint(server.url("/userinfo"))
+                .build()
+                .clientBuilder()
+                .userinfoCache(UserinfoCache.builder().ttl(Duration.ofMinutes(1)).build())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void Should_cache_userinfo_per_access_token() {
+        var alice = Tokens.builder().accessToken("alice").build();
+        var bob = Tokens.builder().accessToken("bob").build();
+
+        assertEquals("alice", client.userinfo(alice).join().getSub());
+        assertEquals("alice", client.userinfo(alice).join().getSub());
+        assertEquals("bob", client.userinfo(bob).join().getSub());
+        assertEquals(2, server.hits("/userinfo"));
+
+        var stats = client.getUserinfoCache().stats();
+        assertEquals(1, stats.hits());
+        assertEquals(2, stats.misses());
+    }
+
+    @Test
+    void Should_not_cache_past_the_access_token_expiry() {
+        var expired = Tokens.builder()
+                .accessToken("expired")
+                .expiresAt(client.getClock().instant().minusSeconds(1))
+                .build();
+
+        client.userinfo(expired).join();
+        client.userinfo(expired).join();
+
+        assertEquals(2, server.hits("/userinfo"));
+        assertFalse(client.getUserinfoCache().size() > 0);
+    }
+
+    @Test
+    void Should_fail_on_and_not_cache_malformed_responses() {
+        var truncated = Tokens.builder().accessToken("truncated").build();
+
+        for (var i = 0; i < 2; i++) {
+            var e = assertThrows(CompletionException.class, () -> client.userinfo(truncated).join());
+            assertInstanceOf(RelyingPartyException.class, e.getCause());
+        }
+        assertEquals(2, server.hits("/userinfo"));
+        assertEquals(0, client.getUserinfoCache().size());
+    }
+}
@@ -0,0 +1,111 @@
+package com.etiennek.oidc.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URL;
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.StubServer;
+import com.etiennek.oidc.TestJwts;
+import com.etiennek.oidc.client.http.WarmUp;
+import com.etiennek.oidc.client.metrics.Endpoint;
+import com.etiennek.oidc.client.metrics.InMemoryInstrumentation;
+
+import static com.etiennek.oidc.client.utils.UriUtils.*;
+
+public class WarmUpTest {
+    private static final KeyPair RSA = TestJwts.rsaKeyPair();
+
+    private final AtomicInteger heads = new AtomicInteger();
+    private final InMemoryInstrumentation instrumentation = new InMemoryInstrumentation();
+    private StubServer server;
+
+    @BeforeEach
+    void setUp() {
+        StubServer.Handler head = exchange -> {
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                heads.incrementAndGet();
+            }
+            exchange.sendResponseHeaders(405, -1);
+        };
+        server = new StubServer()
+                .handle("/token", head)
+                .handle("/userinfo", head)
+                .json("/jwks", TestJwts.jwks(TestJwts.jwk("rsa-1", RSA)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private Client.ClientBuilder clientBuilder(URL userinfoEndpoint) {
+        return Issuer.builder()
+                .issuer("https://op.example.com")
+                .tokenEndpoint(server.url("/token"))
+                .userinfoEndpoint(userinfoEndpoint)
+                .jwksUri(server.url("/jwks"))
+                .build()
+                .clientBuilder()
+                .clientId("client_id")
+                .instrumentation(instrumentation);
+    }
+
+    @Test
+    void Should_connect_to_every_endpoint_and_prime_the_keys() throws Exception {
+        try (var client = clientBuilder(server.url("/userinfo")).build()) {
+            var warmUps = client.warmUp().get(5, TimeUnit.SECONDS);
+            assertSame(client.warmUp(), client.warmUp());
+
+            assertEquals(3, warmUps.size());
+            for (var warmUp : warmUps) {
+                assertTrue(warmUp.isSuccess(), () -> warmUp + " failed");
+                assertTrue(warmUp.total().isPositive());
+            }
+            assertEquals(Endpoint.TOKEN, warmUps.get(0).endpoint());
+            assertEquals(URI.create(server.baseUrl() + "/jwks"), warmUps.get(2).uri());
+
+            assertEquals(2, heads.get());
+            assertEquals(2, server.hits("/jwks"));
+        }
+    }
+
+    @Test
+    void Should_warm_up_on_build_when_asked_to() throws Exception {
+        try (var client = clientBuilder(server.url("/userinfo")).warmUp(true).build()) {
+            var warmUps = client.warmUp();
+            warmUps.get(5, TimeUnit.SECONDS);
+            assertSame(warmUps, client.warmUp());
+            assertEquals(2, heads.get());
+        }
+    }
+
+    @Test
+    void Should_report_endpoints_that_could_not_be_reached() throws Exception {
+        int closedPort;
+        try (var socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        var unreachable = toUrl("http://127.0.0.1:" + closedPort + "/userinfo");
+        try (var client = clientBuilder(unreachable).build()) {
+            var warmUps = client.warmUp().get(5, TimeUnit.SECONDS);
+            WarmUp userinfo = warmUps.get(1);
+            assertEquals(Endpoint.USERINFO, userinfo.endpoint());
+            assertFalse(userinfo.isSuccess());
+            assertNotNull(userinfo.error());
+            assertTrue(warmUps.get(0).isSuccess());
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.etiennek.oidc.client.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.StubServer;
+import com.etiennek.oidc.client.exceptions.IdpUnavailableException;
+import com.etiennek.oidc.client.exceptions.IdpUnavailableException.Reason;
+import com.etiennek.oidc.client.metrics.Endpoint;
+import com.etiennek.oidc.client.metrics.InMemoryInstrumentation;
+import com.etiennek.oidc.client.metrics.Outcome;
+
+public class HttpTransportTest {
+    private StubServer server;
+    private HttpTransport transport;
+
+    @BeforeEach
+    void setUp() {
+        server = new StubServer();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (transport != null) {
+            transport.close();
+        }
+        server.close();
+    }
+
+    private CompletableFuture<Integer> get(String path) {
+        return call(Endpoint.USERINFO, path);
+    }
+
+    private CompletableFuture<Integer> call(Endpoint endpoint, String path) {
+        var request = transport.newRequest(URI.create(server.baseUrl() + path)).GET().build();
+        return transport.exchange(new InMemoryInstrumentation(), endpoint, request, HttpResponse::statusCode);
+    }
+
+    private static Reason reason(CompletableFuture<?> future) {
+        var e = assertThrows(CompletionException.class, future::join);
+        return assertInstanceOf(IdpUnavailableException.class, e.getCause()).getReason();
+    }
+
+    @Test
+    void Should_open_the_circuit_after_failures_and_close_it_after_a_successful_probe() throws Exception {
+        transport = HttpTransport.builder()
+                .resilience(ResiliencePolicy.builder()
+                        .slidingWindowSize(10)
+                        .minimumCalls(4)
+                        .openDuration(Duration.ofMillis(200))
+                        .halfOpenCalls(1)
+                        .build())
+                .retry(RetryPolicy.none())
+                .build();
+        var status = new AtomicInteger(503);
+        server.handle("/userinfo", exchange -> StubServer.respond(exchange, status.get(), "text/plain", ""));
+
+        for (var i = 0; i < 4; i++) {
+            assertEquals(503, get("/userinfo").join());
+        }
+        assertEquals(Reason.CIRCUIT_OPEN, reason(get("/userinfo")));
+        assertEquals(4, server.hits("/userinfo"));
+
+        status.set(200);
+        Thread.sleep(250);
+        assertEquals(200, get("/userinfo").join());
+        assertEquals(CircuitBreaker.State.CLOSED, transport.circuitState(URI.create(server.baseUrl() + "/userinfo")));
+    }
+
+    @Test
+    void Should_not_warm_up_an_endpoint_whose_circuit_is_open() {
+        transport = HttpTransport.builder()
+                .resilience(ResiliencePolicy.builder()
+                        .slidingWindowSize(10)
+                        .minimumCalls(4)
+                        .openDuration(Duration.ofMinutes(1))
+                        .build())
+                .retry(RetryPolicy.none())
+                .build();
+        server.handle("/userinfo", exchange -> StubServer.respond(exchange, 503, "text/plain", ""));
+        for (var i = 0; i < 4; i++) {
+            assertEquals(503, get("/userinfo").join());
+        }
+
+        var warmUp = transport.warmUp(Endpoint.USERINFO, URI.create(server.baseUrl() + "/userinfo")).join();
+        assertEquals(Reason.CIRCUIT_OPEN,
+                assertInstanceOf(IdpUnavailableException.class, warmUp.error()).getReason());
+        assertEquals(4, server.hits("/userinfo"));
+    }
+
+    @Test
+    void Should_reject_requests_over_the_bulkhead_limit() throws Exception {
+        transport = HttpTransport.builder()
+                .resilience(ResiliencePolicy.builder().maxConcurrentRequests(1).build())
+                .coalesce(false)
+                .build();
+        var release = new CountDownLatch(1);
+        server.handle("/slow", exchange -> {
+            release.await(5, TimeUnit.SECONDS);
+            StubServer.respond(exchange, 200, "text/plain", "");
+        });
+        server.handle("/other", exchange -> StubServer.respond(exchange, 200, "text/plain", ""));
+
+        var first = get("/slow");
+        assertEquals(Reason.BULKHEAD_FULL, reason(get("/slow")));
+        assertEquals(200, get("/other").join());
+
+        release.countDown();
+        assertEquals(200, first.join());
+        assertEquals(200, get("/slow").join());
+    }
+
+    private HttpRequest userinfoRequest(String user) {
+        return transport.newRequest(URI.create(server.baseUrl() + "/userinfo"))
+                .GET()
+                .header("Authorization", "Bearer " + user)
+                .build();
+    }
+
+    private CompletableFuture<Object> get(String user, Function<HttpResponse<byte[]>, Object> parser) {
+        return transport.exchange(new InMemoryInstrumentation(), Endpoint.USERINFO, userinfoRequest(user), parser);
+    }
+
+    @Test
+    void Should_coalesce_identical_concurrent_gets() throws Exception {
+        transport = HttpTransport.builder().retry(RetryPolicy.none()).build();
+        var release = new CountDownLatch(1);
+        server.handle("/userinfo", exchange -> {
+            release.await(5, TimeUnit.SECONDS);
+            var failed = exchange.getRequestHeaders().getFirst("Authorization").endsWith("carol");
+            StubServer.respond(exchange, failed ? 500 : 200, "application/json", "{}");
+        });
+        Function<HttpResponse<byte[]>, Object> parser = response -> {
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("status " + response.statusCode());
+            }
+            return response;
+        };
+
+        // Blocking callers share requests too, and parse on their own thread
+        var blocking = CompletableFuture.supplyAsync(() -> transport.execute(new InMemoryInstrumentation(),
+                Endpoint.USERINFO, userinfoRequest("alice"), parser));
+        for (var i = 0; i < 500 && server.hits("/userinfo") == 0; i++) {
+            Thread.sleep(10);
+        }
+        var alice = List.of(blocking, get("alice", parser), get("alice", parser), get("alice", parser));
+        var detached = get("alice", parser);
+        var bob = get("bob", parser);
+        var carol = List.of(get("carol", parser), get("carol", parser));
+        detached.cancel(true);
+        release.countDown();
+
+        var result = alice.get(0).get(5, TimeUnit.SECONDS);
+        alice.forEach(future -> assertSame(result, future.join()));
+        assertNotSame(result, bob.join());
+        carol.forEach(future -> assertInstanceOf(IllegalStateException.class,
+                assertThrows(CompletionException.class, future::join).getCause()));
+        assertEquals(3, server.hits("/userinfo"));
+    }
+
+    @Test
+    void Should_abort_a_coalesced_get_once_every_caller_cancelled() throws Exception {
+        transport = HttpTransport.builder()
+                .resilience(ResiliencePolicy.builder().maxConcurrentRequests(1).build())
+                .build();
+        var release = new CountDownLatch(1);
+        server.handle("/userinfo", exchange -> {
+            release.await(5, TimeUnit.SECONDS);
+            StubServer.respond(exchange, 200, "text/plain", "");
+        });
+        Function<HttpResponse<byte[]>, Object> parser = HttpResponse::statusCode;
+
+        var first = get("alice", parser);
+        var second = get("alice", parser);
+        for (var i = 0; i < 500 && server.hits("/userinfo") == 0; i++) {
+            Thread.sleep(10);
+        }
+        first.cancel(true);
+        assertEquals(Reason.BULKHEAD_FULL, reason(get("bob", parser)));
+
+        second.cancel(true);
+        var third = get("alice", parser);
+        release.countDown();
+        assertEquals(200, third.get(5, TimeUnit.SECONDS));
+        assertEquals(2, server.hits("/userinfo"));
+    }
+
+    @Test
+    void Should_time_out_based_on_observed_latency() {
+        transport = HttpTransport.builder()
+                .requestTimeout(Duration.ofSeconds(10))
+                .resilience(ResiliencePolicy.builder()
+                        .minimumSamples(5)
+                        .minTimeout(Duration.ofMillis(200))
+                        .timeoutMultiplier(2)
+                        .build())
+                .retry(RetryPolicy.none())
+                .build();
+        var delay = new AtomicLong();
+        server.handle("/userinfo", exchange -> {
+            Thread.sleep(delay.get());
+            StubServer.respond(exchange, 200, "text/plain", "");
+        });
+
+        for (var i = 0; i < 5; i++) {
+            get("/userinfo").join();
+        }
+
+        delay.set(3000);
+        var start = System.nanoTime();
+        var instrumentation = new InMemoryInstrumentation();
+        var request = transport.newRequest(URI.create(server.baseUrl() + "/userinfo")).GET().build();
+        var future = transport.exchange(instrumentation, Endpoint.USERINFO, request, HttpResponse::statusCode);
+
+        assertEquals(Reason.TIMEOUT, reason(future));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertEquals(1, instrumentation.count(Endpoint.USERINFO, Outcome.TRANSPORT_ERROR, "timeout"));
+    }
+
+    @Test
+    void Should_recover_when_latency_steps_up_past_the_adaptive_timeout() throws Exception {
+        transport = HttpTransport.builder()
+                .requestTimeout(Duration.ofSeconds(10))
+                .resilience(ResiliencePolicy.builder()
+                        .minimumSamples(5)
+                        .minTimeout(Duration.ofMillis(200))
+                        .timeoutMultiplier(2)
+                        .slidingWindowSize(2)
+                        .minimumCalls(2)
+                        .openDuration(Duration.ofMillis(100))
+                        .halfOpenCalls(1)
+                        .build())
+                .retry(RetryPolicy.none())
+                .build();
+        var delay = new AtomicLong();
+        server.handle("/userinfo", exchange -> {
+            Thread.sleep(delay.get());
+            StubServer.respond(exchange, 200, "text/plain", "");
+        });
+        for (var i = 0; i < 5; i++) {
+            get("/userinfo").join();
+        }
+
+        delay.set(1000);
+        assertEquals(Reason.TIMEOUT, reason(get("/userinfo")));
+        assertEquals(Reason.CIRCUIT_OPEN, reason(get("/userinfo")));
+
+        Thread.sleep(150);
+        assertEquals(200, get("/userinfo").join());
+        assertEquals(CircuitBreaker.State.CLOSED, transport.circuitState(URI.create(server.baseUrl() + "/userinfo")));
+        assertEquals(200, get("/userinfo").join());
+    }
+
+    @Test
+    void Should_retry_idempotent_requests_honouring_retry_after() {
+        transport = HttpTransport.builder().build();
+        var calls = new AtomicInteger();
+        server.handle("/userinfo", exchange -> {
+            if (calls.incrementAndGet() == 1) {
+                exchange.getResponseHeaders().set("Retry-After", "0");
+                StubServer.respond(exchange, 503, "text/plain", "");
+            } else {
+                StubServer.respond(exchange, 200, "text/plain", "");
+            }
+        });
+
+        assertEquals(200, get("/userinfo").join());
+        assertEquals(2, server.hits("/userinfo"));
+    }
+
+    @Test
+    void Should_not_retry_client_authenticated_requests() {
+        transport = HttpTransport.builder().build();
+        server.handle("/token", exchange -> StubServer.respond(exchange, 503, "text/plain", ""));
+        server.handle("/introspect", exchange -> StubServer.respond(exchange, 503, "text/plain", ""));
+
+        assertEquals(503, call(Endpoint.TOKEN, "/token").join());
+        assertEquals(1, server.hits("/token"));
+        assertEquals(503, call(Endpoint.INTROSPECTION, "/introspect").join());
+        assertEquals(1, server.hits("/introspect"));
+    }
+
+    @Test
+    void Should_stop_retrying_when_the_budget_is_spent() {
+        transport = HttpTransport.builder()
+                .retry(RetryPolicy.builder()
+                        .initialBackoff(Duration.ofMillis(1))
+                        .budgetCapacity(1)
+                        .budgetRatio(0)
+                        .build())
+                .build();
+        server.handle("/userinfo", exchange -> StubServer.respond(exchange, 502, "text/plain", ""));
+
+        assertEquals(502, get("/userinfo").join());
+        assertEquals(2, server.hits("/userinfo"));
+
+        assertEquals(502, get("/userinfo").join());
+        assertEquals(3, server.hits("/userinfo"));
+    }
+
+    @Test
+    void Should_hedge_slow_requests() {
+        transport = HttpTransport.builder()
+                .resilience(ResiliencePolicy.builder().minimumSamples(3).build())
+                .retry(RetryPolicy.builder().hedging(true).minHedgeDelay(Duration.ofMillis(50)).build())
+                .build();
+        var calls = new AtomicInteger();
+        server.handle("/userinfo", exchange -> {
+            if (calls.incrementAndGet() == 4) {
+                Thread.sleep(3000);
+            }
+            StubServer.respond(exchange, 200, "text/plain", "");
+        });
+
+        for (var i = 0; i < 3; i++) {
+            get("/userinfo").join();
+        }
+
+        var start = System.nanoTime();
+        assertEquals(200, get("/userinfo").join());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertEquals(5, server.hits("/userinfo"));
+    }
+
+    @Test
+    void Should_cancel_the_request_that_lost_the_hedge() throws Exception {
+        transport = HttpTransport.builder()
+                .resilience(ResiliencePolicy.builder().minimumSamples(3).maxConcurrentRequests(2).build())
+                .retry(RetryPolicy.builder().hedging(true).minHedgeDelay(Duration.ofMillis(50)).build())
+                .coalesce(false)
+                .build();
+        var calls = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        server.handle("/userinfo", exchange -> {
+            var call = calls.incrementAndGet();
+            if (call == 4) {
+                Thread.sleep(3000);
+            } else if (call > 5) {
+                release.await(5, TimeUnit.SECONDS);
+            }
+            StubServer.respond(exchange, 200, "text/plain", "");
+        });
+        for (var i = 0; i < 3; i++) {
+            get("/userinfo").join();
+        }
+        assertEquals(200, get("/userinfo").join());
+
+        // Both permits are free again: the slow primary was aborted rather than left running
+        var first = get("/userinfo");
+        var second = get("/userinfo");
+        Thread.sleep(100);
+        release.countDown();
+        assertEquals(200, first.get(5, TimeUnit.SECONDS));
+        assertEquals(200, second.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,137 @@
+package com.etiennek.oidc.client.jose;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.KeyPair;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.MutableClock;
+import com.etiennek.oidc.StubServer;
+import com.etiennek.oidc.TestJwts;
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.etiennek.oidc.client.http.HttpTransport;
+
+import static com.etiennek.oidc.client.utils.UriUtils.*;
+
+public class AccessTokenValidatorTest {
+    private static final String ISSUER = "https://op.example.com";
+    private static final String AUDIENCE = "https://api.example.com";
+    private static final KeyPair RSA = TestJwts.rsaKeyPair();
+    private static final KeyPair EC = TestJwts.ecKeyPair();
+
+    private StubServer server;
+    private HttpTransport transport;
+    private MutableClock clock;
+    private AccessTokenValidator validator;
+
+    @BeforeEach
+    void setUp() {
+        server = new StubServer().json("/jwks", TestJwts.jwks(TestJwts.jwk("rsa-1", RSA), TestJwts.jwk("ec-1", EC)));
+        transport = HttpTransport.builder().build();
+        clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        validator = validator(10);
+    }
+
+    private AccessTokenValidator validator(int cacheSize) {
+        return AccessTokenValidator.builder()
+                .issuer(ISSUER)
+                .audience(AUDIENCE)
+                .keys(JwksCache.builder().jwksUri(toUri(server.url("/jwks"))).transport(transport).clock(clock).build())
+                .clock(clock)
+                .cacheSize(cacheSize)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+        server.close();
+    }
+
+    private Map<String, Object> claims() {
+        var claims = new HashMap<String, Object>();
+        claims.put("iss", ISSUER);
+        claims.put("sub", "subject_123");
+        claims.put("aud", List.of("https://other.example.com", AUDIENCE));
+        claims.put("client_id", "client_123");
+        claims.put("scope", "read:orders write:orders");
+        claims.put("jti", "jti_123");
+        claims.put("iat", clock.instant().getEpochSecond());
+        claims.put("exp", clock.instant().getEpochSecond() + 300);
+        claims.put("groups", List.of("a", "b"));
+        return claims;
+    }
+
+    private String sign(Map<String, Object> claims) {
+        return TestJwts.sign("RS256", "rsa-1", "at+jwt", RSA.getPrivate(), claims);
+    }
+
+    private RelyingPartyException rejected(AccessTokenValidator validator, String token, String... scopes) {
+        var e = assertThrows(CompletionException.class, () -> validator.validate(token, scopes).join());
+        return assertInstanceOf(RelyingPartyException.class, e.getCause());
+    }
+
+    @Test
+    void Should_validate_access_tokens() {
+        var token = validator.validate(sign(claims()), "read:orders").join();
+        assertEquals("subject_123", token.getSubject());
+        assertEquals("client_123", token.getClientId());
+        assertEquals("jti_123", token.getJti());
+        assertEquals(List.of("https://other.example.com", AUDIENCE), token.getAudience());
+        assertTrue(token.hasScope("write:orders"));
+        assertFalse(token.hasScope("read"));
+        assertEquals(List.of("a", "b"), token.claims().get("groups"));
+
+        var ec = TestJwts.sign("ES256", "ec-1", "application/at+jwt", EC.getPrivate(), claims());
+        assertEquals("subject_123", validator.validate(ec).join().getSubject());
+        assertEquals(1, server.hits("/jwks"));
+    }
+
+    @Test
+    void Should_reject_invalid_access_tokens() {
+        assertTrue(rejected(validator, TestJwts.sign("RS256", "rsa-1", RSA.getPrivate(), claims())).getMessage()
+                .contains("typ"));
+
+        var token = sign(claims());
+        var tampered = token.substring(0, token.length() - 4) + (token.endsWith("AAAA") ? "BBBB" : "AAAA");
+        assertTrue(rejected(validator, tampered).getMessage().contains("signature"));
+
+        var wrongIssuer = claims();
+        wrongIssuer.put("iss", "https://evil.example.com");
+        assertTrue(rejected(validator, sign(wrongIssuer)).getMessage().contains("iss"));
+
+        var wrongAudience = claims();
+        wrongAudience.put("aud", "https://other.example.com");
+        assertTrue(rejected(validator, sign(wrongAudience)).getMessage().contains("aud"));
+
+        var notYetValid = claims();
+        notYetValid.put("nbf", clock.instant().getEpochSecond() + 60);
+        assertTrue(rejected(validator, sign(notYetValid)).getMessage().contains("not active"));
+
+        assertTrue(rejected(validator, sign(claims()), "admin").getMessage().contains("scope"));
+    }
+
+    @Test
+    void Should_recheck_expiry_and_scopes_of_cached_tokens() {
+        var token = sign(claims());
+        validator.validate(token).join();
+        assertTrue(rejected(validator, token, "admin").getMessage().contains("scope"));
+
+        clock.advance(Duration.ofSeconds(300));
+        assertTrue(rejected(validator, token).getMessage().contains("expired"));
+        assertTrue(rejected(validator(0), token).getMessage().contains("expired"));
+    }
+}
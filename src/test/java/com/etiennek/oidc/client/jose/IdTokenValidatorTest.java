@@ -0,0 +1,197 @@
+package com.etiennek.oidc.client.jose;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.KeyPair;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.MutableClock;
+import com.etiennek.oidc.StubServer;
+import com.etiennek.oidc.TestJwts;
+import com.etiennek.oidc.client.exceptions.RelyingPartyException;
+import com.etiennek.oidc.client.http.HttpTransport;
+
+import static com.etiennek.oidc.client.utils.UriUtils.*;
+
+public class IdTokenValidatorTest {
+    private static final String ISSUER = "https://op.example.com";
+    private static final String CLIENT_ID = "client_id_128974329";
+    private static final KeyPair RSA = TestJwts.rsaKeyPair();
+    private static final KeyPair EC = TestJwts.ecKeyPair();
+
+    private final AtomicReference<String> jwks = new AtomicReference<>();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private StubServer server;
+    private HttpTransport transport;
+    private MutableClock clock;
+    private IdTokenValidator validator;
+
+    @BeforeEach
+    void setUp() {
+        jwks.set(TestJwts.jwks(TestJwts.jwk("rsa-1", RSA), TestJwts.jwk("ec-1", EC)));
+        server = new StubServer().handle("/jwks",
+                exchange -> StubServer.respond(exchange, status.get(), "application/json", jwks.get()));
+        transport = HttpTransport.builder().build();
+        clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        validator = IdTokenValidator.builder()
+                .issuer(ISSUER)
+                .clientId(CLIENT_ID)
+                .keys(JwksCache.builder()
+                        .jwksUri(toUri(server.url("/jwks")))
+                        .transport(transport)
+                        .clock(clock)
+                        .build())
+                .clock(clock)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+        server.close();
+    }
+
+    private Map<String, Object> claims() {
+        var claims = new HashMap<String, Object>();
+        claims.put("iss", ISSUER);
+        claims.put("sub", "subject_123");
+        claims.put("aud", CLIENT_ID);
+        claims.put("iat", clock.instant().getEpochSecond());
+        claims.put("exp", clock.instant().getEpochSecond() + 300);
+        claims.put("nonce", "nonce_123");
+        return claims;
+    }
+
+    private RelyingPartyException rejected(String idToken, String nonce) {
+        var e = assertThrows(CompletionException.class, () -> validator.validate(idToken, nonce).join());
+        return assertInstanceOf(RelyingPartyException.class, e.getCause());
+    }
+
+    @Test
+    void Should_validate_RS256_PS256_and_ES256_signatures() {
+        assertEquals("subject_123", validator.validate(
+                TestJwts.sign("RS256", "rsa-1", RSA.getPrivate(), claims()), "nonce_123").join().get("sub"));
+        assertEquals("subject_123", validator.validate(
+                TestJwts.sign("PS256", "rsa-1", RSA.getPrivate(), claims()), "nonce_123").join().get("sub"));
+        assertEquals("subject_123", validator.validate(
+                TestJwts.sign("ES256", "ec-1", EC.getPrivate(), claims()), "nonce_123").join().get("sub"));
+        assertEquals(1, server.hits("/jwks"));
+    }
+
+    @Test
+    void Should_reject_tampered_signatures_and_mismatched_keys() {
+        var idToken = TestJwts.sign("RS256", "rsa-1", RSA.getPrivate(), claims());
+        var tampered = idToken.substring(0, idToken.length() - 4) + "AAAA";
+        rejected(tampered, "nonce_123");
+
+        rejected(TestJwts.sign("ES256", "rsa-1", EC.getPrivate(), claims()), "nonce_123");
+        rejected(TestJwts.sign("RS256", "rsa-1", TestJwts.rsaKeyPair().getPrivate(),
+                claims()), "nonce_123");
+    }
+
+    @Test
+    void Should_validate_claims() {
+        var wrongIssuer = claims();
+        wrongIssuer.put("iss", "https://evil.example.com");
+        rejected(TestJwts.sign("RS256", "rsa-1", RSA.getPrivate(), wrongIssuer), "nonce_123");
+
+        var wrongAudience = claims();
+        wrongAudience.put("aud", List.of("someone_else"));
+        rejected(TestJwts.sign("RS256", "rsa-1", RSA.getPrivate(), wrongAudience), "nonce_123");
+
+        var wrongAzp = claims();
+        wrongAzp.put("aud", List.of(CLIENT_ID, "someone_else"));
+        wrongAzp.put("azp", "someone_else");
+        rejected(TestJwts.sign("RS256", "rsa-1", RSA.getPrivate(), wrongAzp), "nonce_123");
+
+        rejected(TestJwts.sign("RS256", "rsa-1", RSA.getPrivate(), claims()), "another_nonce");
+        rejected(TestJwts.sign("RS256", "rsa-1", RSA.getPrivate(), claims()), null);
+
+        var idToken = TestJwts.sign("RS256", "rsa-1", RSA.getPrivate(), claims());
+        clock.advance(Duration.ofSeconds(300));
+        rejected(idToken, "nonce_123");
+    }
+
+    @Test
+    void Should_refetch_the_JWKS_at_most_once_per_interval_for_unknown_kids() {
+        validator.validate(TestJwts.sign("RS256", "rsa-1", RSA.getPrivate(), claims()), "nonce_123").join();
+        assertEquals(1, server.hits("/jwks"));
+
+        var rotated = TestJwts.rsaKeyPair();
+        var rotatedToken = TestJwts.sign("RS256", "rsa-2", rotated.getPrivate(), claims());
+        rejected(rotatedToken, "nonce_123");
+        rejected(rotatedToken, "nonce_123");
+        assertEquals(1, server.hits("/jwks"));
+
+        jwks.set(TestJwts.jwks(TestJwts.jwk("rsa-1", RSA), TestJwts.jwk("rsa-2", rotated)));
+        clock.advance(Duration.ofSeconds(30));
+        var claims = claims();
+        claims.put("exp", clock.instant().getEpochSecond() + 300);
+        rotatedToken = TestJwts.sign("RS256", "rsa-2", rotated.getPrivate(), claims);
+
+        assertTrue(validator.validate(rotatedToken, "nonce_123").join().containsKey("sub"));
+        assertEquals(2, server.hits("/jwks"));
+    }
+
+    @Test
+    void Should_rate_limit_JWKS_fetches_that_fail() {
+        var idToken = TestJwts.sign("RS256", "rsa-1", RSA.getPrivate(), claims());
+        status.set(404);
+        assertThrows(CompletionException.class, () -> validator.validate(idToken, "nonce_123").join());
+        assertThrows(CompletionException.class, () -> validator.validate(idToken, "nonce_123").join());
+        assertEquals(1, server.hits("/jwks"));
+
+        status.set(200);
+        clock.advance(Duration.ofSeconds(30));
+        var claims = claims();
+        claims.put("exp", clock.instant().getEpochSecond() + 300);
+        var later = TestJwts.sign("RS256", "rsa-1", RSA.getPrivate(), claims);
+        assertTrue(validator.validate(later, "nonce_123").join().containsKey("sub"));
+        assertEquals(2, server.hits("/jwks"));
+    }
+
+    @Test
+    void Should_share_one_JWKS_request_between_caches_of_the_same_uri() throws Exception {
+        var release = new CountDownLatch(1);
+        server.handle("/shared-jwks", exchange -> {
+            release.await(5, TimeUnit.SECONDS);
+            StubServer.respond(exchange, 200, "application/json", jwks.get());
+        });
+        var caches = new ArrayList<JwksCache>();
+        for (var i = 0; i < 2; i++) {
+            caches.add(JwksCache.builder()
+                    .jwksUri(toUri(server.url("/shared-jwks")))
+                    .transport(transport)
+                    .clock(clock)
+                    .build());
+        }
+
+        var first = caches.get(0).get("rsa-1", JwsAlgorithm.RS256);
+        for (var i = 0; i < 500 && server.hits("/shared-jwks") == 0; i++) {
+            Thread.sleep(10);
+        }
+        var second = caches.get(1).get("rsa-1", JwsAlgorithm.RS256);
+        release.countDown();
+
+        assertEquals("rsa-1", first.get(5, TimeUnit.SECONDS).kid());
+        assertEquals("rsa-1", second.get(5, TimeUnit.SECONDS).kid());
+        assertEquals(1, server.hits("/shared-jwks"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.etiennek.oidc.client.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.StubServer;
+import com.etiennek.oidc.client.Client;
+import com.etiennek.oidc.client.Issuer;
+import com.etiennek.oidc.client.Tokens;
+import com.etiennek.oidc.client.Client.Checks;
+
+import static com.etiennek.oidc.client.utils.UriUtils.*;
+
+public class InMemoryInstrumentationTest {
+    private static final URI REDIRECT_URI = URI.create("https://client.example.com/cb");
+
+    private final InMemoryInstrumentation instrumentation = new InMemoryInstrumentation();
+    private StubServer server;
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        server = new StubServer()
+                .handle("/token", exchange -> {
+                    var body = StubServer.body(exchange);
+                    StubServer.respond(exchange, 200, "application/json", body.contains("code=bad")
+                            ? "{\"error\":\"invalid_grant\"}"
+                            : "{\"access_token\":\"access_123\",\"token_type\":\"bearer\"}");
+                })
+                .json("/userinfo", "{\"sub\":\"subject_123\"}");
+        client = Issuer.builder()
+                .tokenEndpoint(server.url("/token"))
+                .userinfoEndpoint(server.url("/userinfo"))
+                .build()
+                .clientBuilder()
+                .clientId("client_id")
+                .clientSecret("client_secret")
+                .instrumentation(instrumentation)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    private Tokens callback(String code) {
+        return client.oauthCallback(REDIRECT_URI,
+                Map.of("code", List.of(code), "state", List.of("state_123")),
+                Checks.builder().state("state_123").build()).join();
+    }
+
+    @Test
+    void Should_record_timers_outcomes_and_in_flight_requests() {
+        var tokens = callback("good");
+        client.userinfo(tokens).join();
+        assertThrows(CompletionException.class, () -> callback("bad"));
+
+        assertEquals(1, instrumentation.count(Endpoint.TOKEN, Outcome.SUCCESS, null));
+        assertEquals(1, instrumentation.count(Endpoint.TOKEN, Outcome.IDP_ERROR, "invalid_grant"));
+        assertEquals(1, instrumentation.count(Endpoint.TOKEN, Outcome.IDP_ERROR));
+        assertEquals(1, instrumentation.count(Endpoint.USERINFO, Outcome.SUCCESS));
+
+        var request = instrumentation.timer(Endpoint.TOKEN, Phase.REQUEST);
+        assertEquals(2, request.count());
+        assertTrue(request.totalNanos() > 0);
+        assertTrue(request.maxNanos() <= request.totalNanos());
+        assertEquals(2, instrumentation.timer(Endpoint.TOKEN, Phase.PARSE).count());
+        assertEquals(1, instrumentation.timer(Endpoint.USERINFO, Phase.REQUEST).count());
+
+        assertEquals(0, instrumentation.inFlight(Endpoint.TOKEN, toUri(server.url("/token"))));
+        assertEquals(2L, instrumentation.snapshot().get("timer.TOKEN.REQUEST.count"));
+    }
+
+    @Test
+    void Should_record_transport_errors() {
+        server.close();
+
+        assertThrows(CompletionException.class, () -> callback("good"));
+
+        assertEquals(1, instrumentation.count(Endpoint.TOKEN, Outcome.TRANSPORT_ERROR));
+        assertEquals(1, instrumentation.timer(Endpoint.TOKEN, Phase.REQUEST).count());
+        assertEquals(0, instrumentation.timer(Endpoint.TOKEN, Phase.PARSE).count());
+    }
+}
@@ -0,0 +1,75 @@
+package com.etiennek.oidc.client.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.etiennek.oidc.MutableClock;
+
+public class BoundedCacheTest {
+    private static final Duration TTL = Duration.ofMinutes(1);
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+
+    @Test
+    void Should_expire_entries() {
+        var cache = BoundedCache.<String, String>builder().maximumSize(10).clock(clock).build();
+        cache.put("a", "1", TTL);
+
+        assertEquals("1", cache.getIfPresent("a"));
+        clock.advance(TTL);
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(0, cache.size());
+        assertEquals(new BoundedCache.Stats(1, 1, 0, 0), cache.stats());
+    }
+
+    @Test
+    void Should_stay_bounded_and_keep_popular_entries_over_one_off_keys() {
+        var cache = BoundedCache.<String, String>builder().maximumSize(10).clock(clock).build();
+        for (var i = 0; i < 10; i++) {
+            cache.put("hot" + i, "v", TTL);
+            for (var j = 0; j < 5; j++) {
+                cache.getIfPresent("hot" + i);
+            }
+        }
+
+        for (var i = 0; i < 1000; i++) {
+            assertNotNull(cache.getIfPresent("hot" + (i % 10)));
+            cache.getIfPresent("cold" + i);
+            cache.put("cold" + i, "v", TTL);
+        }
+
+        assertEquals(10, cache.size());
+    }
+
+    @Test
+    void Should_collapse_concurrent_loads_and_not_cache_failures() {
+        var cache = BoundedCache.<String, String>builder().maximumSize(10).clock(clock).build();
+        var loads = new AtomicInteger();
+        var pending = new CompletableFuture<String>();
+
+        var futures = new ArrayList<CompletableFuture<String>>();
+        for (var i = 0; i < 8; i++) {
+            futures.add(cache.get("a", () -> {
+                loads.incrementAndGet();
+                return pending;
+            }, v -> TTL));
+        }
+        pending.complete("1");
+        futures.forEach(f -> assertEquals("1", f.join()));
+        assertEquals(1, loads.get());
+        assertEquals("1", cache.get("a", () -> CompletableFuture.completedFuture("2"), v -> TTL).join());
+
+        cache.get("b", () -> CompletableFuture.failedFuture(new IllegalStateException()), v -> TTL);
+        assertNull(cache.getIfPresent("b"));
+        assertEquals(1, cache.stats().loadFailures());
+    }
+}
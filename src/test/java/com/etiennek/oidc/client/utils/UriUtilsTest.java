@@ -0,0 +1,55 @@
+package com.etiennek.oidc.client.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static com.etiennek.oidc.client.utils.UriUtils.*;
+
+public class UriUtilsTest {
+    private static final List<String> SAMPLES = List.of(
+            "",
+            "plain_value-1.2*3",
+            "with space+plus",
+            "!@#$%^&()_+{}[]\\|/><\"':;~`",
+            "https://client.example.com/cb?a=1&b=2",
+            "café über € 中文",
+            "emoji 😀 pair",
+            "unpaired \ud83d high",
+            "unpaired \ude00 low");
+
+    @Test
+    void Should_encode_like_URLEncoder() {
+        for (var sample : SAMPLES) {
+            assertEquals(URLEncoder.encode(sample, StandardCharsets.UTF_8), urlEncode(sample), sample);
+            assertEquals(URLEncoder.encode(sample, StandardCharsets.UTF_8),
+                    urlEncode(new StringBuilder(), sample).toString(), sample);
+        }
+        var safe = "nothing_to.encode";
+        assertSame(safe, urlEncode(safe));
+    }
+
+    @Test
+    void Should_decode_like_URLDecoder() {
+        for (var sample : SAMPLES) {
+            var encoded = URLEncoder.encode(sample, StandardCharsets.UTF_8);
+            assertEquals(URLDecoder.decode(encoded, StandardCharsets.UTF_8), urlDecode(encoded), encoded);
+        }
+        assertEquals("a béc", urlDecode("a+b%c3%A9c"));
+        assertEquals("éé", urlDecode("é%C3%A9"));
+        var plain = "nothing_to_decode";
+        assertSame(plain, urlDecode(plain));
+
+        assertThrows(IllegalArgumentException.class, () -> urlDecode("abc%"));
+        assertThrows(IllegalArgumentException.class, () -> urlDecode("abc%4"));
+        assertThrows(IllegalArgumentException.class, () -> urlDecode("abc%G1"));
+        assertThrows(IllegalArgumentException.class, () -> urlDecode("abc%-1"));
+    }
+}